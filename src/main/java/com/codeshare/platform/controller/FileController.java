@@ -22,6 +22,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import com.codeshare.platform.dto.ApiResponse;
 import com.codeshare.platform.dto.FileDto;
@@ -33,6 +34,7 @@ import com.codeshare.platform.model.UserActivity;
 import com.codeshare.platform.service.ActivityService;
 import com.codeshare.platform.service.BranchService;
 import com.codeshare.platform.service.ConcurrencyService;
+import com.codeshare.platform.service.FileLockEventService;
 import com.codeshare.platform.service.FileLockManager;
 import com.codeshare.platform.service.FileService;
 import com.codeshare.platform.service.ProjectService;
@@ -55,6 +57,8 @@ public class FileController {
     private VersionControlService versionControlService;
     @Autowired
     private ActivityService activityService;
+    @Autowired
+    private FileLockEventService fileLockEventService;
 
     @Autowired
     public FileController(
@@ -133,7 +137,7 @@ public class FileController {
         }
         
         // If no branch specified or content not found, return the standard file
-        return concurrencyService.executeWithReadLock(file.getProject().getId(), () -> {
+        return concurrencyService.executeWithOptimisticRead(file.getProject().getId(), () -> {
             FileDto fileDto = new FileDto(file);
             return new ResponseEntity<>(ApiResponse.success(fileDto), HttpStatus.OK);
         });
@@ -141,7 +145,7 @@ public class FileController {
 
 @GetMapping("/project/{projectId}")
 public ResponseEntity<ApiResponse<List<FileDto>>> getFilesByProject(@PathVariable Long projectId) {
-    return concurrencyService.executeWithReadLock(projectId, () -> {
+    return concurrencyService.executeWithOptimisticRead(projectId, () -> {
         Optional<Project> projectOpt = projectService.getProjectById(projectId);
         if (projectOpt.isPresent()) {
             List<File> files = fileService.getFilesByProject(projectOpt.get());
@@ -264,14 +268,29 @@ public ResponseEntity<ApiResponse<List<FileDto>>> getFilesByProjectAndBranch(
             File file = fileOpt.get();
             User currentUser = getCurrentUser();
             
-            return concurrencyService.executeWithWriteLock(file.getProject().getId(), () -> {
-                boolean acquired = fileLockManager.acquireLock(file, currentUser);
-                if (acquired) {
-                    return new ResponseEntity<>(ApiResponse.success("File locked successfully", fileLockManager.getLockInfo(file)), HttpStatus.OK);
-                } else {
-                    return new ResponseEntity<>(ApiResponse.error("File is already locked by another user"), HttpStatus.CONFLICT);
-                }
-            });
+            // Leases are acquired atomically in the lease store, so no project lock is needed
+            if (fileLockManager.acquireLock(file, currentUser)) {
+                return new ResponseEntity<>(ApiResponse.success("File locked successfully", fileLockManager.getLockInfo(file)), HttpStatus.OK);
+            } else {
+                return new ResponseEntity<>(ApiResponse.error("File is already locked by another user"), HttpStatus.CONFLICT);
+            }
+        } else {
+            return new ResponseEntity<>(ApiResponse.error("File not found"), HttpStatus.NOT_FOUND);
+        }
+    }
+
+    @PostMapping("/{id}/lock/renew")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> renewFileLock(@PathVariable Long id) {
+        Optional<File> fileOpt = fileService.getFileById(id);
+        if (fileOpt.isPresent()) {
+            File file = fileOpt.get();
+            User currentUser = getCurrentUser();
+
+            if (fileLockManager.renewLock(file, currentUser)) {
+                return new ResponseEntity<>(ApiResponse.success("File lock renewed", fileLockManager.getLockInfo(file)), HttpStatus.OK);
+            } else {
+                return new ResponseEntity<>(ApiResponse.error("You don't have the lock on this file"), HttpStatus.CONFLICT);
+            }
         } else {
             return new ResponseEntity<>(ApiResponse.error("File not found"), HttpStatus.NOT_FOUND);
         }
@@ -284,14 +303,11 @@ public ResponseEntity<ApiResponse<List<FileDto>>> getFilesByProjectAndBranch(
             File file = fileOpt.get();
             User currentUser = getCurrentUser();
             
-            return concurrencyService.executeWithWriteLock(file.getProject().getId(), () -> {
-                boolean released = fileLockManager.releaseLock(file, currentUser);
-                if (released) {
-                    return new ResponseEntity<>(ApiResponse.success("File unlocked successfully", null), HttpStatus.OK);
-                } else {
-                    return new ResponseEntity<>(ApiResponse.error("You don't have the lock on this file"), HttpStatus.FORBIDDEN);
-                }
-            });
+            if (fileLockManager.releaseLock(file, currentUser)) {
+                return new ResponseEntity<>(ApiResponse.success("File unlocked successfully", null), HttpStatus.OK);
+            } else {
+                return new ResponseEntity<>(ApiResponse.error("You don't have the lock on this file"), HttpStatus.FORBIDDEN);
+            }
         } else {
             return new ResponseEntity<>(ApiResponse.error("File not found"), HttpStatus.NOT_FOUND);
         }
@@ -303,15 +319,25 @@ public ResponseEntity<ApiResponse<List<FileDto>>> getFilesByProjectAndBranch(
         if (fileOpt.isPresent()) {
             File file = fileOpt.get();
             
-            return concurrencyService.executeWithReadLock(file.getProject().getId(), () -> {
-                Map<String, Object> lockInfo = fileLockManager.getLockInfo(file);
-                return new ResponseEntity<>(ApiResponse.success(lockInfo), HttpStatus.OK);
-            });
+            // Lock state lives in the lease store, so no project lock is needed to read it
+            Map<String, Object> lockInfo = fileLockManager.getLockInfo(file);
+            return new ResponseEntity<>(ApiResponse.success(lockInfo), HttpStatus.OK);
         } else {
             return new ResponseEntity<>(ApiResponse.error("File not found"), HttpStatus.NOT_FOUND);
         }
     }
 
+    /**
+     * Stream of lock changes for all files of a project; replaces polling lock-info per file
+     */
+    @GetMapping(path = "/project/{projectId}/lock-events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeToLockEvents(@PathVariable Long projectId) {
+        if (projectService.getProjectById(projectId).isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Project not found");
+        }
+        return fileLockEventService.subscribe(projectId, () -> fileLockManager.getProjectLocks(projectId));
+    }
+
     // Adjust your FileController.java
 @GetMapping("/{id}/raw")
 public ResponseEntity<String> getRawFileContent(@PathVariable Long id) {
@@ -0,0 +1,87 @@
+package com.codeshare.platform.controller;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.codeshare.platform.dto.ApiResponse;
+import com.codeshare.platform.service.BlobStore;
+import com.codeshare.platform.service.BranchDiffService;
+import com.codeshare.platform.service.CommitGraphService;
+import com.codeshare.platform.service.ConcurrencyService;
+import com.codeshare.platform.service.DiffService;
+import com.codeshare.platform.service.GitRepositoryCache;
+import com.codeshare.platform.service.MergeabilityService;
+import com.codeshare.platform.service.PayloadCodecService;
+import com.codeshare.platform.service.PullRequestDiffStatsService;
+import com.codeshare.platform.service.SnapshotCache;
+import com.codeshare.platform.service.TreeManifestService;
+
+@RestController
+@RequestMapping("/api/metrics")
+public class MetricsController {
+
+    private final ConcurrencyService concurrencyService;
+    private final BlobStore blobStore;
+    private final SnapshotCache snapshotCache;
+    private final TreeManifestService treeManifestService;
+    private final PayloadCodecService payloadCodecService;
+    private final GitRepositoryCache gitRepositoryCache;
+    private final MergeabilityService mergeabilityService;
+    private final CommitGraphService commitGraphService;
+    private final DiffService diffService;
+    private final BranchDiffService branchDiffService;
+    private final PullRequestDiffStatsService pullRequestDiffStatsService;
+
+    @Autowired
+    public MetricsController(ConcurrencyService concurrencyService,
+                             BlobStore blobStore,
+                             SnapshotCache snapshotCache,
+                             TreeManifestService treeManifestService,
+                             PayloadCodecService payloadCodecService,
+                             GitRepositoryCache gitRepositoryCache,
+                             MergeabilityService mergeabilityService,
+                             CommitGraphService commitGraphService,
+                             DiffService diffService,
+                             BranchDiffService branchDiffService,
+                             PullRequestDiffStatsService pullRequestDiffStatsService) {
+        this.concurrencyService = concurrencyService;
+        this.blobStore = blobStore;
+        this.snapshotCache = snapshotCache;
+        this.treeManifestService = treeManifestService;
+        this.payloadCodecService = payloadCodecService;
+        this.gitRepositoryCache = gitRepositoryCache;
+        this.mergeabilityService = mergeabilityService;
+        this.commitGraphService = commitGraphService;
+        this.diffService = diffService;
+        this.branchDiffService = branchDiffService;
+        this.pullRequestDiffStatsService = pullRequestDiffStatsService;
+    }
+
+    @GetMapping
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("projectLocks", concurrencyService.getLockStats());
+        metrics.put("blobCache", blobStore.getCacheStats());
+        metrics.put("snapshotCache", snapshotCache.getStats());
+        metrics.put("treeCache", treeManifestService.getCacheStats());
+        metrics.put("payloadCodec", payloadCodecService.getStats());
+        metrics.put("gitRepositories", gitRepositoryCache.getStats());
+        metrics.put("mergeability", mergeabilityService.getStats());
+        metrics.put("commitGraph", commitGraphService.getStats());
+        metrics.put("diff", diffService.getStats());
+        metrics.put("branchDiff", branchDiffService.getStats());
+        metrics.put("pullRequestDiffStats", pullRequestDiffStatsService.getStats());
+        return ResponseEntity.ok(ApiResponse.success(metrics));
+    }
+
+    @GetMapping("/locks")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getLockMetrics() {
+        return ResponseEntity.ok(ApiResponse.success(concurrencyService.getLockStats()));
+    }
+}
@@ -8,7 +8,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,8 +24,11 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.codeshare.platform.dto.ApiResponse;
+import com.codeshare.platform.dto.ChangedFilePage;
 import com.codeshare.platform.dto.CommitDTO;
+import com.codeshare.platform.dto.FileDiffPage;
 import com.codeshare.platform.dto.UserDto;
+import com.codeshare.platform.exception.MergeConflictException;
 import com.codeshare.platform.model.Branch;
 import com.codeshare.platform.model.Comment;
 import com.codeshare.platform.model.Commit;
@@ -36,7 +38,9 @@ import com.codeshare.platform.model.PullRequestStatus;
 import com.codeshare.platform.model.User;
 import com.codeshare.platform.repository.CommentRepository;
 import com.codeshare.platform.repository.CommitRepository;
+import com.codeshare.platform.service.BranchHeadService;
 import com.codeshare.platform.service.BranchService;
+import com.codeshare.platform.service.CommitGraphService;
 import com.codeshare.platform.service.ProjectService;
 import com.codeshare.platform.service.PullRequestService;
 import com.codeshare.platform.service.UserService;
@@ -52,6 +56,10 @@ public class PullRequestController {
     private CommentRepository commentRepository;
     @Autowired
     private CommitRepository commitRepository;
+    @Autowired
+    private BranchHeadService branchHeadService;
+    @Autowired
+    private CommitGraphService commitGraphService;
 
     @Autowired
     public PullRequestController(PullRequestService pullRequestService,
@@ -185,8 +193,8 @@ public class PullRequestController {
             );
         }
         
-        // Check if PR is mergeable
-        if (!pullRequest.isMergeable()) {
+        // Check if PR is mergeable; the stored result is used when it is for the current branch heads
+        if (!pullRequestService.checkMergeable(pullRequest)) {
             return new ResponseEntity<>(
                 ApiResponse.error("Cannot merge: Pull request has conflicts"),
                 HttpStatus.CONFLICT
@@ -201,6 +209,11 @@ public class PullRequestController {
                 ApiResponse.success("Pull request merged successfully", null),
                 HttpStatus.OK
             );
+        } catch (MergeConflictException e) {
+            return new ResponseEntity<>(
+                ApiResponse.error("Cannot merge: " + e.getMessage()),
+                HttpStatus.CONFLICT
+            );
         } catch (Exception e) {
             return new ResponseEntity<>(
                 ApiResponse.error("Failed to merge: " + e.getMessage()),
@@ -261,6 +274,23 @@ public class PullRequestController {
         );
     }
 
+    @GetMapping("/{id}/mergeability")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getMergeability(@PathVariable Long id) {
+        Optional<PullRequest> pullRequestOpt = pullRequestService.getPullRequestById(id);
+        
+        if (pullRequestOpt.isEmpty()) {
+            return new ResponseEntity<>(ApiResponse.error("Pull request not found"), HttpStatus.NOT_FOUND);
+        }
+        
+        // Returns immediately with PENDING while a check is queued
+        Map<String, Object> result = pullRequestService.getMergeabilityStatus(pullRequestOpt.get());
+        
+        return new ResponseEntity<>(
+            ApiResponse.success(result),
+            HttpStatus.OK
+        );
+    }
+
     @GetMapping("/{id}/files")
     public ResponseEntity<ApiResponse<List<String>>> getChangedFiles(@PathVariable Long id) {
         Optional<PullRequest> pullRequestOpt = pullRequestService.getPullRequestById(id);
@@ -277,6 +307,52 @@ public class PullRequestController {
         );
     }
 
+    @GetMapping("/{id}/diff/files")
+    public ResponseEntity<ApiResponse<ChangedFilePage>> getChangedFilePage(
+            @PathVariable Long id,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        Optional<PullRequest> pullRequestOpt = pullRequestService.getPullRequestById(id);
+        
+        if (pullRequestOpt.isEmpty()) {
+            return new ResponseEntity<>(ApiResponse.error("Pull request not found"), HttpStatus.NOT_FOUND);
+        }
+        
+        // File list with line counts only; file diffs are fetched one at a time from /diff/file
+        ChangedFilePage page = pullRequestService.getChangedFilePage(pullRequestOpt.get(), cursor, limit);
+        
+        return new ResponseEntity<>(
+            ApiResponse.success(page),
+            HttpStatus.OK
+        );
+    }
+
+    @GetMapping("/{id}/diff/file")
+    public ResponseEntity<ApiResponse<FileDiffPage>> getFileDiffPage(
+            @PathVariable Long id,
+            @RequestParam String path,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "1000") int maxLines) {
+        Optional<PullRequest> pullRequestOpt = pullRequestService.getPullRequestById(id);
+        
+        if (pullRequestOpt.isEmpty()) {
+            return new ResponseEntity<>(ApiResponse.error("Pull request not found"), HttpStatus.NOT_FOUND);
+        }
+        
+        try {
+            Optional<FileDiffPage> page = pullRequestService.getFileDiffPage(pullRequestOpt.get(), path, cursor, maxLines);
+            if (page.isEmpty()) {
+                return new ResponseEntity<>(ApiResponse.error("File not changed in this pull request"), HttpStatus.NOT_FOUND);
+            }
+            return new ResponseEntity<>(
+                ApiResponse.success(page.get()),
+                HttpStatus.OK
+            );
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(ApiResponse.error(e.getMessage()), HttpStatus.BAD_REQUEST);
+        }
+    }
+
     @GetMapping("/user")
     public ResponseEntity<ApiResponse<List<PullRequest>>> getUserPullRequests(
             @RequestParam(required = false, defaultValue = "created-by-me") String filter,
@@ -615,47 +691,15 @@ public class PullRequestController {
         List<CommitDTO> commits = new ArrayList<>();
         
         try {
-            // Get the source and target branches
-            Branch sourceBranch = pullRequest.getSourceBranch();
-            Branch targetBranch = pullRequest.getTargetBranch();
-            
-            // Get commits from source branch that are not in target branch
-            List<Commit> branchCommits = commitRepository.findByBranchOrderByCreatedAtDesc(sourceBranch);
-            
-            // Get the base commit (latest common commit between source and target)
-            Optional<Commit> baseCommitOpt = findBaseCommit(sourceBranch, targetBranch);
-            
-            // If base commit exists, only include commits after it
-            if (baseCommitOpt.isPresent()) {
-                Commit baseCommit = baseCommitOpt.get();
-                // Filter out commits that came before the base commit
-                branchCommits = branchCommits.stream()
-                    .filter(commit -> commit.getCreatedAt().isAfter(baseCommit.getCreatedAt()))
-                    .collect(Collectors.toList());
+            // Commits reachable from the source head but not from the target head, from the commit graph
+            Optional<Commit> sourceHead = branchHeadService.getHeadCommit(pullRequest.getSourceBranch());
+            if (sourceHead.isPresent()) {
+                Commit targetHead = branchHeadService.getHeadCommit(pullRequest.getTargetBranch()).orElse(null);
+                List<Long> commitIds = commitGraphService.findCommitIdsNotIn(sourceHead.get(), targetHead);
+                if (!commitIds.isEmpty()) {
+                    commits = commitRepository.findSummariesByIds(commitIds);
+                }
             }
-            
-            // Convert Commit entities to CommitDTOs
-            commits = branchCommits.stream()
-                .map(commit -> {
-                    CommitDTO dto = new CommitDTO();
-                    dto.setId(commit.getId());
-                    dto.setMessage(commit.getMessage());
-                    dto.setCreatedAt(commit.getCreatedAt());
-                    dto.setBranchName(sourceBranch.getName());
-                    dto.setBranchId(sourceBranch.getId());
-                    
-                    // Add author info
-                    if (commit.getAuthor() != null) {
-                        UserDto authorDto = new UserDto();
-                        authorDto.setId(commit.getAuthor().getId());
-                        authorDto.setUsername(commit.getAuthor().getUsername());
-                        authorDto.setEmail(commit.getAuthor().getEmail());
-                        dto.setAuthor(authorDto);
-                    }
-                    
-                    return dto;
-                })
-                .collect(Collectors.toList());
         } catch (Exception e) {
             System.err.println("Error fetching commits for PR #" + id + ": " + e.getMessage());
             return new ResponseEntity<>(ApiResponse.error("Error fetching commits: " + e.getMessage()), 
@@ -665,28 +709,6 @@ public class PullRequestController {
         return new ResponseEntity<>(ApiResponse.success(commits), HttpStatus.OK);
     }
 
-    /**
-     * Find the base commit (common ancestor) between two branches
-     */
-    private Optional<Commit> findBaseCommit(Branch sourceBranch, Branch targetBranch) {
-        List<Commit> sourceCommits = commitRepository.findByBranchOrderByCreatedAtDesc(sourceBranch);
-        List<Commit> targetCommits = commitRepository.findByBranchOrderByCreatedAtDesc(targetBranch);
-        
-        // Create a set of target commit IDs for faster lookup
-        Set<Long> targetCommitIds = targetCommits.stream()
-            .map(Commit::getId)
-            .collect(Collectors.toSet());
-        
-        // Find the first commit in source branch that's also in target branch
-        for (Commit commit : sourceCommits) {
-            if (targetCommitIds.contains(commit.getId())) {
-                return Optional.of(commit);
-            }
-        }
-        
-        return Optional.empty();
-    }
-
     @PostMapping("/{id}/reviewers")
     public ResponseEntity<ApiResponse<PullRequest>> assignReviewers(
             @PathVariable Long id, 
@@ -2,13 +2,13 @@ package com.codeshare.platform.controller;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
 import java.util.stream.Collectors;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -20,24 +20,30 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.codeshare.platform.dto.ApiResponse;
+import com.codeshare.platform.dto.BranchDiffStats;
 import com.codeshare.platform.dto.CommitDTO;
+import com.codeshare.platform.dto.PathChange;
 import com.codeshare.platform.model.Branch;
 import com.codeshare.platform.model.Commit;
 import com.codeshare.platform.model.File;
 import com.codeshare.platform.model.Project;
 import com.codeshare.platform.model.User;
+import com.codeshare.platform.service.BranchDiffService;
 import com.codeshare.platform.service.BranchService;
+import com.codeshare.platform.service.CommitPayloadService;
+import com.codeshare.platform.service.DiffService;
 import com.codeshare.platform.service.FileService;
 import com.codeshare.platform.service.ProjectService;
 import com.codeshare.platform.service.UserService;
 import com.codeshare.platform.service.VersionControlService;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 
 @RestController
 @RequestMapping("/api/version-control")
 public class VersionControlController {
 
+    private static final Logger logger = LoggerFactory.getLogger(VersionControlController.class);
+
     private final VersionControlService versionControlService;
     private final ProjectService projectService;
     private final BranchService branchService;
@@ -46,7 +52,13 @@ public class VersionControlController {
     private final com.codeshare.platform.repository.CommitRepository commitRepository;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private CommitPayloadService commitPayloadService;
+
+    @Autowired
+    private BranchDiffService branchDiffService;
+
+    @Autowired
+    private DiffService diffService;
 
     @Autowired
     public VersionControlController(VersionControlService versionControlService,
@@ -158,21 +170,8 @@ public class VersionControlController {
                 return new ResponseEntity<>(ApiResponse.error("Project not found"), HttpStatus.NOT_FOUND);
             }
             
-            List<Commit> commits = new ArrayList<>();
-            List<Branch> branches = branchService.getBranchesByProject(projectOpt.get());
-            
-            // Collect commits from all branches
-            for (Branch branch : branches) {
-                commits.addAll(commitRepository.findByBranch(branch));
-            }
-            
-            // Sort commits by creation date (newest first)
-            commits.sort((a, b) -> b.getCreatedAt().compareTo(a.getCreatedAt()));
-            
-            // Convert to DTOs
-            List<CommitDTO> commitDTOs = commits.stream()
-                .map(CommitDTO::new)
-                .collect(Collectors.toList());
+            // Commits from all branches, newest first, read directly as DTOs
+            List<CommitDTO> commitDTOs = commitRepository.findSummariesByProject(projectOpt.get());
             
             return new ResponseEntity<>(ApiResponse.success(commitDTOs), HttpStatus.OK);
         } catch (Exception e) {
@@ -192,12 +191,7 @@ public class VersionControlController {
                 return new ResponseEntity<>(ApiResponse.error("Branch not found"), HttpStatus.NOT_FOUND);
             }
             
-            List<Commit> commits = versionControlService.getCommitHistory(branchOpt.get());
-            
-            // Convert to DTOs
-            List<CommitDTO> commitDTOs = commits.stream()
-                .map(CommitDTO::new)
-                .collect(Collectors.toList());
+            List<CommitDTO> commitDTOs = versionControlService.getCommitSummaries(branchOpt.get());
                 
             return new ResponseEntity<>(ApiResponse.success(commitDTOs), HttpStatus.OK);
         } catch (Exception e) {
@@ -260,71 +254,29 @@ public class VersionControlController {
             Branch sourceBranch = sourceBranchOpt.get();
             Branch targetBranch = targetBranchOpt.get();
             
-            // Get snapshots of both branches
-            Map<String, String> sourceSnapshot = versionControlService.getProjectSnapshot(
-                sourceBranch.getProject(), sourceBranch);
-            Map<String, String> targetSnapshot = versionControlService.getProjectSnapshot(
-                sourceBranch.getProject(), targetBranch);
+            // Compare the tree manifests of both branches; only differing files are diffed, in parallel
+            List<PathChange> changes = versionControlService.getChangedPaths(sourceBranch, targetBranch);
+            BranchDiffStats diffStats = branchDiffService.computeStats(changes);
             
-            // Compare the snapshots to find differences
             Map<String, Object> diffInfo = new HashMap<>();
             List<Map<String, Object>> changedFiles = new ArrayList<>();
-            int totalAdditions = 0;
-            int totalDeletions = 0;
-            
-            // Find all file paths from both snapshots
-            Set<String> allFilePaths = new HashSet<>();
-            allFilePaths.addAll(sourceSnapshot.keySet());
-            allFilePaths.addAll(targetSnapshot.keySet());
-            
-            for (String filePath : allFilePaths) {
-                String sourceContent = sourceSnapshot.getOrDefault(filePath, "");
-                String targetContent = targetSnapshot.getOrDefault(filePath, "");
-                
-                if (!sourceContent.equals(targetContent)) {
-                    // Calculate additions and deletions (simple line-based diff)
-                    String[] sourceLines = sourceContent.split("\n");
-                    String[] targetLines = targetContent.split("\n");
-                    
-                    int additions = 0;
-                    int deletions = 0;
-                    
-                    // Very simple diff - just count line differences
-                    if (sourceContent.isEmpty()) {
-                        // New file in target
-                        additions = targetLines.length;
-                    } else if (targetContent.isEmpty()) {
-                        // Deleted file in target
-                        deletions = sourceLines.length;
-                    } else {
-                        // Calculate additions/deletions based on line count difference
-                        // This is a simple approximation
-                        if (targetLines.length > sourceLines.length) {
-                            additions = targetLines.length - sourceLines.length;
-                        } else {
-                            deletions = sourceLines.length - targetLines.length;
-                        }
-                    }
-                    
-                    // Add file change information
-                    Map<String, Object> fileChange = new HashMap<>();
-                    fileChange.put("path", filePath);
-                    fileChange.put("additions", additions);
-                    fileChange.put("deletions", deletions);
-                    
-                    changedFiles.add(fileChange);
-                    
-                    // Update totals
-                    totalAdditions += additions;
-                    totalDeletions += deletions;
-                }
+            for (BranchDiffStats.FileStats file : diffStats.getFiles()) {
+                Map<String, Object> fileChange = new HashMap<>();
+                fileChange.put("path", file.getPath());
+                fileChange.put("additions", file.getAdditions());
+                fileChange.put("deletions", file.getDeletions());
+                changedFiles.add(fileChange);
             }
             
             // Put everything in the response
             diffInfo.put("changedFiles", changedFiles);
-            diffInfo.put("additions", totalAdditions);
-            diffInfo.put("deletions", totalDeletions);
+            diffInfo.put("additions", diffStats.getAdditions());
+            diffInfo.put("deletions", diffStats.getDeletions());
             diffInfo.put("totalChanges", changedFiles.size());
+            diffInfo.put("metadata", Map.of(
+                    "wallTimeMs", diffStats.getWallTimeMs(),
+                    "cpuTimeMs", diffStats.getCpuTimeMs(),
+                    "parallelism", diffStats.getParallelism()));
             
             return new ResponseEntity<>(ApiResponse.success(diffInfo), HttpStatus.OK);
         } catch (Exception e) {
@@ -350,19 +302,12 @@ public class VersionControlController {
             Map<String, Object> details = new HashMap<>();
             details.put("commit", new CommitDTO(commit));
             
-            // Parse file changes from the JSON string
-            if (commit.getFileChanges() != null && !commit.getFileChanges().isEmpty()) {
-                try {
-                    ObjectMapper objectMapper = new ObjectMapper();
-                    @SuppressWarnings("unchecked")
-                    Map<String, String> fileChanges = objectMapper.readValue(commit.getFileChanges(), Map.class);
-                    details.put("fileChanges", fileChanges);
-                } catch (Exception e) {
-                    details.put("fileChanges", new HashMap<>());
-                    details.put("parseError", "Could not parse file changes: " + e.getMessage());
-                }
-            } else {
+            // Load the file changes stored with the commit
+            try {
+                details.put("fileChanges", commitPayloadService.readFileChanges(commit));
+            } catch (Exception e) {
                 details.put("fileChanges", new HashMap<>());
+                details.put("parseError", "Could not parse file changes: " + e.getMessage());
             }
             
             // If this commit has a parent, include information about what changed
@@ -400,13 +345,21 @@ public class VersionControlController {
                     // Get parent commit if it exists
                     Commit parentCommit = commit.getParentCommit();
                     
-                    // Parse file changes from current commit
+                    // Load file changes from current commit
                     Map<String, String> currentFiles = new HashMap<>();
-                    if (commit.getFileChanges() != null && !commit.getFileChanges().isEmpty()) {
+                    try {
+                        currentFiles = commitPayloadService.readFileChanges(commit);
+                    } catch (Exception e) {
+                        logger.warn("Failed to read file changes of commit {}", commit.getId(), e);
+                    }
+                    
+                    // Load parent file changes once for all files in this commit
+                    Map<String, String> parentFiles = new HashMap<>();
+                    if (parentCommit != null) {
                         try {
-                            currentFiles = objectMapper.readValue(commit.getFileChanges(), Map.class);
+                            parentFiles = commitPayloadService.readFileChanges(parentCommit);
                         } catch (Exception e) {
-                            System.err.println("Error parsing file changes: " + e.getMessage());
+                            logger.warn("Failed to read file changes of parent commit {}", parentCommit.getId(), e);
                         }
                     }
                     
@@ -414,21 +367,10 @@ public class VersionControlController {
                     for (Map.Entry<String, String> entry : currentFiles.entrySet()) {
                         String filePath = entry.getKey();
                         String currentContent = entry.getValue();
-                        String parentContent = "";
-                        
-                        // Get parent content if parent commit exists
-                        if (parentCommit != null && parentCommit.getFileChanges() != null) {
-                            try {
-                                Map<String, String> parentFiles = objectMapper.readValue(
-                                    parentCommit.getFileChanges(), Map.class);
-                                parentContent = parentFiles.getOrDefault(filePath, "");
-                            } catch (Exception e) {
-                                System.err.println("Error parsing parent file changes: " + e.getMessage());
-                            }
-                        }
+                        String parentContent = parentFiles.getOrDefault(filePath, "");
                         
                         // Generate diff for this file (using Unix diff-like format)
-                        String diffContent = generateDiff(parentContent, currentContent, filePath);
+                        String diffContent = diffService.formatUnified(diffService.diff(parentContent, currentContent));
                         
                         // Only include files that have actual changes
                         if (diffContent != null && !diffContent.trim().isEmpty()) {
@@ -451,60 +393,4 @@ public class VersionControlController {
                                     HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
-
-    /**
- * Generate a diff between old and new content in a unified diff format
- */
-private String generateDiff(String oldContent, String newContent, String filePath) {
-    // Split content into lines
-    String[] oldLines = oldContent.split("\n");
-    String[] newLines = newContent.split("\n");
-    
-    // Create diff header
-    StringBuilder diff = new StringBuilder();
-    diff.append("@@ -1,").append(oldLines.length).append(" +1,").append(newLines.length).append(" @@\n");
-    
-    // Simple diff algorithm
-    if (oldContent.equals(newContent)) {
-        // No changes
-        return "";
-    } else if (oldContent.isEmpty()) {
-        // File is new - all lines are additions
-        for (String line : newLines) {
-            diff.append("+ ").append(line).append("\n");
-        }
-    } else if (newContent.isEmpty()) {
-        // File was deleted - all lines are deletions
-        for (String line : oldLines) {
-            diff.append("- ").append(line).append("\n");
-        }
-    } else {
-        // File was modified - calculate line-by-line diff
-        // This is a simple implementation - in a real app, you'd use a proper diff algorithm
-        // like Myers diff or something from a library like java-diff-utils
-        
-        // For this example, we'll do a very naive line-by-line comparison
-        int maxLines = Math.max(oldLines.length, newLines.length);
-        for (int i = 0; i < maxLines; i++) {
-            if (i < oldLines.length && i < newLines.length) {
-                if (oldLines[i].equals(newLines[i])) {
-                    // Lines are the same
-                    diff.append("  ").append(newLines[i]).append("\n");
-                } else {
-                    // Lines are different
-                    diff.append("- ").append(oldLines[i]).append("\n");
-                    diff.append("+ ").append(newLines[i]).append("\n");
-                }
-            } else if (i < oldLines.length) {
-                // Line was removed
-                diff.append("- ").append(oldLines[i]).append("\n");
-            } else {
-                // Line was added
-                diff.append("+ ").append(newLines[i]).append("\n");
-            }
-        }
-    }
-    
-    return diff.toString();
 }
-}
\ No newline at end of file
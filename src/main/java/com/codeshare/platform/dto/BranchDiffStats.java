@@ -0,0 +1,36 @@
+package com.codeshare.platform.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Added and deleted line counts for the files that differ between two branches
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BranchDiffStats {
+    private List<FileStats> files = new ArrayList<>();
+    private int additions;
+    private int deletions;
+    // Elapsed time of the whole computation and CPU time summed over the threads that did it
+    private long wallTimeMs;
+    private long cpuTimeMs;
+    // Highest number of threads that worked on this diff at the same time
+    private int parallelism;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FileStats {
+        private String path;
+        private int additions;
+        private int deletions;
+        // False when the diff budget ran out and the counts assume a full rewrite
+        private boolean exact;
+    }
+}
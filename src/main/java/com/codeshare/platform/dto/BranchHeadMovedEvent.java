@@ -0,0 +1,16 @@
+package com.codeshare.platform.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Published when a commit becomes the new head of a branch
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BranchHeadMovedEvent {
+    private Long branchId;
+    private Long headCommitId;
+}
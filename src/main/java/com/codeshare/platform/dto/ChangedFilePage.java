@@ -0,0 +1,20 @@
+package com.codeshare.platform.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One page of the changed files of a pull request, ordered by path, with their line counts
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangedFilePage {
+    private List<BranchDiffStats.FileStats> files = new ArrayList<>();
+    // Pass as cursor to get the next page; null on the last page
+    private String nextCursor;
+}
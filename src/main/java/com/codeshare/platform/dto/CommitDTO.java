@@ -37,9 +37,22 @@ public class CommitDTO {
             this.author.setEmail(commit.getAuthor().getEmail());
             this.author.setFullName(commit.getAuthor().getFullName());
         }
+    }
+    
+    // Constructor for JPQL projections of commit metadata
+    public CommitDTO(Long id, String message, LocalDateTime createdAt, Long branchId, String branchName,
+                     Long authorId, String authorUsername, String authorEmail, String authorFullName) {
+        this.id = id;
+        this.message = message;
+        this.createdAt = createdAt;
+        this.branchId = branchId;
+        this.branchName = branchName;
         
-        // Include file changes
-        this.fileChanges = commit.getFileChanges();
+        this.author = new UserDto();
+        this.author.setId(authorId);
+        this.author.setUsername(authorUsername);
+        this.author.setEmail(authorEmail);
+        this.author.setFullName(authorFullName);
     }
     
     // Getters and setters
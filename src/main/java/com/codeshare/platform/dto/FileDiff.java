@@ -0,0 +1,37 @@
+package com.codeshare.platform.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Line diff of one file as unified-diff hunks
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FileDiff {
+    private int additions;
+    private int deletions;
+    // False when the diff budget ran out and the file is reported as fully replaced
+    private boolean exact = true;
+    private List<Hunk> hunks = new ArrayList<>();
+
+    /**
+     * Changed lines with surrounding context. Line numbers are 1-based; each line is prefixed
+     * with "+ " (added), "- " (deleted) or "  " (context).
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Hunk {
+        private int oldStart;
+        private int oldLines;
+        private int newStart;
+        private int newLines;
+        private List<String> lines = new ArrayList<>();
+    }
+}
@@ -0,0 +1,25 @@
+package com.codeshare.platform.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A range of the hunks of one file diff. A hunk larger than the page is split into consecutive
+ * hunks, each with its own line numbers.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FileDiffPage {
+    private String path;
+    private int additions;
+    private int deletions;
+    private boolean exact;
+    private List<FileDiff.Hunk> hunks = new ArrayList<>();
+    // Pass as cursor to get the next page; null on the last page
+    private String nextCursor;
+}
@@ -0,0 +1,24 @@
+package com.codeshare.platform.dto;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Change of the lock on a file, pushed to subscribers of the file's project
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FileLockEvent {
+
+    public enum Type { ACQUIRED, RENEWED, RELEASED, EXPIRED }
+
+    private Type type;
+    private Long fileId;
+    private Long projectId;
+    private String username;
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,32 @@
+package com.codeshare.platform.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of a trial merge of a source branch into a target branch
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MergeCheckResult {
+    private boolean mergeable;
+    private List<String> conflictPaths = new ArrayList<>();
+    private String message;
+
+    public static MergeCheckResult clean(String message) {
+        return new MergeCheckResult(true, new ArrayList<>(), message);
+    }
+
+    public static MergeCheckResult conflicts(List<String> conflictPaths) {
+        return new MergeCheckResult(false, conflictPaths, conflictPaths.size() + " conflicting file(s)");
+    }
+
+    public static MergeCheckResult notMergeable(String message) {
+        return new MergeCheckResult(false, new ArrayList<>(), message);
+    }
+}
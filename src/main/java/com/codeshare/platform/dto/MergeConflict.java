@@ -0,0 +1,34 @@
+package com.codeshare.platform.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A path that could not be merged, with the conflicting hunks when both sides edited its content
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MergeConflict {
+    private String path;
+    private String reason;
+    private List<Hunk> hunks = new ArrayList<>();
+
+    /**
+     * Lines both sides changed differently; line numbers are 1-based
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Hunk {
+        private int oursStartLine;
+        private List<String> oursLines = new ArrayList<>();
+        private int theirsStartLine;
+        private List<String> theirsLines = new ArrayList<>();
+        private List<String> baseLines = new ArrayList<>();
+    }
+}
@@ -0,0 +1,17 @@
+package com.codeshare.platform.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A file that differs between two trees, with its blob hash on each side (null where the file is absent)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PathChange {
+    private String path;
+    private String oldBlobHash;
+    private String newBlobHash;
+}
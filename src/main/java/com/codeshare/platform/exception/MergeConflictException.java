@@ -0,0 +1,29 @@
+package com.codeshare.platform.exception;
+
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import com.codeshare.platform.dto.MergeConflict;
+
+/**
+ * Exception thrown when a merge cannot be completed without manual conflict resolution
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class MergeConflictException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient List<MergeConflict> conflicts;
+
+    public MergeConflictException(List<MergeConflict> conflicts) {
+        super("Merge conflicts in " + conflicts.size() + " file(s): "
+                + String.join(", ", conflicts.stream().map(MergeConflict::getPath).toList()));
+        this.conflicts = conflicts;
+    }
+
+    public List<MergeConflict> getConflicts() {
+        return conflicts;
+    }
+}
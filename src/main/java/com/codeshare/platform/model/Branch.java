@@ -51,4 +51,19 @@ public class Branch {
     private List<Commit> commits = new ArrayList<>();
     
     private boolean isDefault = false;
+    
+    // The pointer columns below are only written by compare-and-set queries in BranchRepository,
+    // never by saving the entity, so a stale Branch instance cannot move them back
+    
+    // Latest commit of the branch; null for branches whose head predates head tracking
+    @Column(insertable = false, updatable = false)
+    private Long headCommitId;
+    
+    // Incremented every time the head moves
+    @Column(insertable = false, updatable = false)
+    private Long headVersion;
+    
+    // Commit the file_versions index currently reflects; null until the branch is indexed
+    @Column(insertable = false, updatable = false)
+    private Long indexedCommitId;
 }
\ No newline at end of file
@@ -47,11 +47,23 @@ public class Commit {
     @Column(nullable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
     
-    @Column(columnDefinition = "TEXT")
-    private String fileChanges; // JSON representation of file changes
+    // File changes are stored in CommitPayload, see CommitPayloadService
+    
+    private Integer depth; // number of ancestors; null for commits created before depth was tracked
+    
+    // Root of the tree manifest of the full snapshot as of this commit. Set on insert; older commits
+    // are backfilled only through CommitRepository.backfillTreeHash, never by saving the entity
+    @Column(length = 64, updatable = false)
+    private String treeHash;
     
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "parent_commit_id")
-    @JsonIgnoreProperties({"parentCommit", "branch", "author", "fileChanges"})
+    @JsonIgnoreProperties({"parentCommit", "branch", "author"})
     private Commit parentCommit;
+    
+    // Source head a merge commit merged in; the commit's own file changes are relative to parentCommit
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "merge_parent_commit_id")
+    @JsonIgnoreProperties({"parentCommit", "mergeParentCommit", "branch", "author"})
+    private Commit mergeParentCommit;
 }
\ No newline at end of file
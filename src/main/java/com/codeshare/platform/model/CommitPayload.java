@@ -0,0 +1,26 @@
+package com.codeshare.platform.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * File changes of a commit, kept out of the commits table so that
+ * loading commits for history listings never pulls payloads along
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "commit_payloads")
+public class CommitPayload {
+    @Id
+    private Long commitId;
+
+    @Column(columnDefinition = "TEXT")
+    private String blobRefs; // JSON map of file path -> blob hash
+}
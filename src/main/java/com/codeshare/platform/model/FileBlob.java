@@ -0,0 +1,46 @@
+package com.codeshare.platform.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Immutable file content, addressed by the SHA-256 hash of the content.
+ * Commits reference blobs by hash, so identical content is stored only once.
+ * A blob is stored either in full or as a binary delta against another blob.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "file_blobs")
+public class FileBlob {
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    @Column(columnDefinition = "TEXT")
+    private String content; // full content of blobs stored before compression; null otherwise
+
+    @Column(length = 16)
+    private String encoding; // FULL or DELTA; null for blobs stored before deltas existed (full)
+
+    @Column(length = 64)
+    private String baseHash; // blob this delta applies to
+
+    private Integer chainDepth; // number of deltas to apply from the nearest full blob
+
+    private byte[] data; // encoded full content or delta instructions, see PayloadCodecService
+
+    @Column(nullable = false)
+    private long size;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
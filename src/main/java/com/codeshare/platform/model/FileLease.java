@@ -0,0 +1,42 @@
+package com.codeshare.platform.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Lease on a file held by one user until it expires or is released.
+ * The file id is the primary key, so at most one lease row exists per file.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "file_leases")
+public class FileLease {
+    @Id
+    private Long fileId;
+    
+    private Long projectId;
+    
+    @Column(nullable = false)
+    private Long userId;
+    
+    private String username;
+    
+    @Column(nullable = false)
+    private LocalDateTime acquiredAt;
+    
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+    
+    public boolean isExpired(LocalDateTime now) {
+        return expiresAt.isBefore(now);
+    }
+}
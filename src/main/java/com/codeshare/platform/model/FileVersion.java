@@ -0,0 +1,46 @@
+package com.codeshare.platform.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Index entry pointing at the current version of a file on a branch head.
+ * Maintained when commits are appended, so file lookups don't have to walk the commit history.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "file_versions",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"branch_id", "path"}),
+       indexes = @Index(columnList = "branch_id"))
+public class FileVersion {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "branch_id", nullable = false)
+    private Branch branch;
+    
+    @Column(nullable = false)
+    private String path;
+    
+    @Column(length = 64)
+    private String blobHash;
+    
+    // Last commit that changed this path
+    private Long commitId;
+}
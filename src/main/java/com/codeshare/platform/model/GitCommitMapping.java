@@ -0,0 +1,28 @@
+package com.codeshare.platform.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Git commit a platform commit was exported to in the project's mirror repository
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "git_commit_mappings")
+public class GitCommitMapping {
+    @Id
+    private Long commitId;
+    
+    @Column(nullable = false)
+    private Long projectId;
+    
+    @Column(nullable = false, length = 40)
+    private String objectId; // hex SHA-1 of the Git commit
+}
@@ -0,0 +1,29 @@
+package com.codeshare.platform.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Payload columns that older commits still carry in the commits table.
+ * Only read to move those commits over to {@link CommitPayload}; never inserted.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "commits")
+public class LegacyCommitPayload {
+    @Id
+    private Long id;
+
+    @Column(columnDefinition = "TEXT")
+    private String fileChanges; // JSON map of file path -> content
+
+    @Column(columnDefinition = "TEXT")
+    private String blobRefs; // JSON map of file path -> blob hash
+}
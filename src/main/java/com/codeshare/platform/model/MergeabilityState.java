@@ -0,0 +1,5 @@
+package com.codeshare.platform.model;
+
+public enum MergeabilityState {
+    PENDING, MERGEABLE, CONFLICTING
+}
@@ -7,6 +7,7 @@ import java.util.List;
 import java.util.Set;
 
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 
@@ -105,7 +106,48 @@ public class PullRequest {
     @JsonIgnoreProperties("pullRequest")
     private List<PullRequestReview> reviews = new ArrayList<>();
     
+    // Mergeability is computed in the background and only written through PullRequestRepository's
+    // conditional updates, so saving a stale entity never overwrites a newer result
+    @Column(updatable = false)
     private boolean mergeable;
+
+    @Enumerated(EnumType.STRING)
+    @Column(updatable = false)
+    private MergeabilityState mergeabilityState = MergeabilityState.PENDING;
+
+    // Head commits the mergeability state belongs to; 0 for a branch without commits
+    @Column(updatable = false)
+    private Long mergeabilitySourceHeadId;
+
+    @Column(updatable = false)
+    private Long mergeabilityTargetHeadId;
+
+    @JsonIgnore
+    @Column(columnDefinition = "TEXT", updatable = false)
+    private String mergeConflictPaths;
+
+    @Column(updatable = false)
+    private LocalDateTime mergeabilityCheckedAt;
+
+    // Diff stats of the head commits below, written by PullRequestRepository.recordDiffStats the same way;
+    // null until they have been computed once. The per-file breakdown is in pull_request_file_stats.
+    @Column(updatable = false)
+    private Long diffStatsSourceHeadId;
+
+    @Column(updatable = false)
+    private Long diffStatsTargetHeadId;
+
+    @Column(updatable = false)
+    private Integer filesChanged;
+
+    @Column(updatable = false)
+    private Integer additions;
+
+    @Column(updatable = false)
+    private Integer deletions;
+
+    @Column(updatable = false)
+    private LocalDateTime diffStatsComputedAt;
     
     @Column(nullable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
@@ -0,0 +1,45 @@
+package com.codeshare.platform.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Diff stats of one changed file of a pull request, for the head commits stored on the pull request.
+ * The blob hashes are the target and source versions of the file; null for a file that does not exist there.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "pull_request_file_stats",
+       indexes = @Index(name = "idx_pr_file_stats_pr_path", columnList = "pull_request_id, path", unique = true))
+public class PullRequestFileStat {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "pull_request_id", nullable = false)
+    private Long pullRequestId;
+
+    @Column(nullable = false, length = 1024)
+    private String path;
+
+    private String oldBlobHash;
+
+    private String newBlobHash;
+
+    private int additions;
+
+    private int deletions;
+
+    // False when the diff budget ran out and the counts assume a full rewrite
+    private boolean exact;
+}
@@ -0,0 +1,40 @@
+package com.codeshare.platform.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Full branch snapshot (path -> blob hash) stored for every Nth commit,
+ * so rebuilding a snapshot never has to walk further back than the nearest checkpoint.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "snapshot_checkpoints")
+public class SnapshotCheckpoint {
+    @Id
+    private Long commitId;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "branch_id", nullable = false)
+    private Branch branch;
+    
+    private Integer depth;
+    
+    @Column(columnDefinition = "TEXT")
+    private String snapshot; // JSON map of file path -> blob hash
+    
+    @Column(nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
@@ -0,0 +1,32 @@
+package com.codeshare.platform.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Immutable directory node of a commit tree manifest, addressed by the hash of its entries.
+ * Identical directories in any commit or branch share the same node.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "tree_nodes")
+public class TreeNode {
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    @Column(columnDefinition = "TEXT")
+    private String entries; // JSON map of name -> hash; subdirectory names end with '/'
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
@@ -4,7 +4,11 @@ import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.codeshare.platform.model.Branch;
 import com.codeshare.platform.model.Project;
@@ -16,4 +20,40 @@ public interface BranchRepository extends JpaRepository<Branch, Long> {
     Optional<Branch> findByProjectAndIsDefaultTrue(Project project);
 
     public Optional<Branch> findByProjectAndIsDefault(Project project, boolean b);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Branch b SET b.indexedCommitId = :commitId WHERE b.id = :branchId")
+    int updateIndexedCommitId(@Param("branchId") Long branchId, @Param("commitId") Long commitId);
+
+    /**
+     * Pointer columns of a branch, read from the database rather than from a possibly stale entity
+     */
+    interface HeadState {
+        Long getHeadCommitId();
+        Long getHeadVersion();
+        Long getIndexedCommitId();
+    }
+
+    @Query("SELECT b.headCommitId AS headCommitId, b.headVersion AS headVersion, "
+            + "b.indexedCommitId AS indexedCommitId FROM Branch b WHERE b.id = :branchId")
+    HeadState findHeadState(@Param("branchId") Long branchId);
+
+    // Row lock held until the surrounding transaction ends
+    @Query(value = "SELECT head_commit_id AS \"headCommitId\", head_version AS \"headVersion\", "
+            + "indexed_commit_id AS \"indexedCommitId\" FROM branches WHERE id = :branchId FOR UPDATE",
+            nativeQuery = true)
+    HeadState lockHeadState(@Param("branchId") Long branchId);
+
+    /**
+     * Move the head of a branch if nobody else moved it since expectedVersion was read
+     * @return 1 if the head was moved, 0 if the version no longer matched
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Branch b SET b.headCommitId = :commitId, b.headVersion = :expectedVersion + 1 "
+            + "WHERE b.id = :branchId AND COALESCE(b.headVersion, 0) = :expectedVersion")
+    int advanceHead(@Param("branchId") Long branchId,
+                    @Param("expectedVersion") long expectedVersion,
+                    @Param("commitId") Long commitId);
 }
\ No newline at end of file
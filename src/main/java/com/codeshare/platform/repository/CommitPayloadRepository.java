@@ -0,0 +1,25 @@
+package com.codeshare.platform.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.codeshare.platform.model.CommitPayload;
+
+@Repository
+public interface CommitPayloadRepository extends JpaRepository<CommitPayload, Long> {
+    /**
+     * Insert the payload of a commit unless it already has one. Readers migrating the same legacy
+     * commit concurrently store the same blob refs, so the loser is a no-op.
+     * @return 1 if inserted, 0 if the payload already existed
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO commit_payloads (commit_id, blob_refs) VALUES (:commitId, :blobRefs) "
+            + "ON CONFLICT (commit_id) DO NOTHING",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("commitId") Long commitId, @Param("blobRefs") String blobRefs);
+}
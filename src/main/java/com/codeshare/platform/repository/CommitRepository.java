@@ -1,19 +1,71 @@
 package com.codeshare.platform.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.codeshare.platform.dto.CommitDTO;
 import com.codeshare.platform.model.Branch;
 import com.codeshare.platform.model.Commit;
+import com.codeshare.platform.model.Project;
 
 @Repository
 public interface CommitRepository extends JpaRepository<Commit, Long> {
+
+    interface GraphEdge {
+        Long getId();
+        Long getParentId();
+        Long getMergeParentId();
+    }
+
     List<Commit> findByBranchOrderByCreatedAtDesc(Branch branch);
 
 
     public List<Commit> findByBranch(Branch branch);
     Optional<Commit> findFirstByBranchOrderByCreatedAtDesc(Branch branch);
-}
\ No newline at end of file
+
+    // History listings read only the commit metadata columns straight into DTOs
+    @Query("SELECT new com.codeshare.platform.dto.CommitDTO(c.id, c.message, c.createdAt, b.id, b.name, "
+            + "a.id, a.username, a.email, a.fullName) "
+            + "FROM Commit c JOIN c.branch b JOIN c.author a "
+            + "WHERE c.branch = :branch ORDER BY c.createdAt DESC")
+    List<CommitDTO> findSummariesByBranch(@Param("branch") Branch branch);
+
+    @Query("SELECT new com.codeshare.platform.dto.CommitDTO(c.id, c.message, c.createdAt, b.id, b.name, "
+            + "a.id, a.username, a.email, a.fullName) "
+            + "FROM Commit c JOIN c.branch b JOIN c.author a "
+            + "WHERE b.project = :project ORDER BY c.createdAt DESC")
+    List<CommitDTO> findSummariesByProject(@Param("project") Project project);
+
+    @Query("SELECT c.id FROM Commit c WHERE c.branch = :branch")
+    List<Long> findIdsByBranch(@Param("branch") Branch branch);
+
+    @Query("SELECT new com.codeshare.platform.dto.CommitDTO(c.id, c.message, c.createdAt, b.id, b.name, "
+            + "a.id, a.username, a.email, a.fullName) "
+            + "FROM Commit c JOIN c.branch b JOIN c.author a "
+            + "WHERE c.id IN :ids ORDER BY c.createdAt DESC")
+    List<CommitDTO> findSummariesByIds(@Param("ids") Collection<Long> ids);
+
+    // Parent links of the commits of a project newer than afterId, for the commit graph
+    @Query(value = "SELECT c.id AS \"id\", c.parent_commit_id AS \"parentId\", "
+            + "c.merge_parent_commit_id AS \"mergeParentId\" "
+            + "FROM commits c JOIN branches b ON b.id = c.branch_id "
+            + "WHERE b.project_id = :projectId AND c.id > :afterId ORDER BY c.id",
+            nativeQuery = true)
+    List<GraphEdge> findGraphEdges(@Param("projectId") Long projectId, @Param("afterId") long afterId);
+
+    /**
+     * Record the tree hash of a commit created before tree manifests existed; a no-op if it is already set
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Commit c SET c.treeHash = :treeHash WHERE c.id = :id AND c.treeHash IS NULL")
+    int backfillTreeHash(@Param("id") Long id, @Param("treeHash") String treeHash);
+}
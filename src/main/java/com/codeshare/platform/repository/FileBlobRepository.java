@@ -0,0 +1,42 @@
+package com.codeshare.platform.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.codeshare.platform.model.FileBlob;
+
+@Repository
+public interface FileBlobRepository extends JpaRepository<FileBlob, String> {
+    @Query("SELECT b.hash FROM FileBlob b WHERE b.hash IN :hashes")
+    List<String> findExistingHashes(@Param("hashes") Collection<String> hashes);
+
+    @Query("SELECT b.chainDepth FROM FileBlob b WHERE b.hash = :hash")
+    Integer findChainDepth(@Param("hash") String hash);
+
+    /**
+     * Insert a blob unless one with the same hash exists. Blobs are immutable, so losing a race
+     * against a concurrent insert of the same content is harmless, and it does not abort the transaction.
+     * @return 1 if inserted, 0 if the blob already existed
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO file_blobs (hash, encoding, base_hash, chain_depth, data, size, created_at) "
+            + "VALUES (:hash, :encoding, :baseHash, :chainDepth, :data, :size, :createdAt) "
+            + "ON CONFLICT (hash) DO NOTHING",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("hash") String hash,
+                       @Param("encoding") String encoding,
+                       @Param("baseHash") String baseHash,
+                       @Param("chainDepth") Integer chainDepth,
+                       @Param("data") byte[] data,
+                       @Param("size") long size,
+                       @Param("createdAt") LocalDateTime createdAt);
+}
@@ -0,0 +1,62 @@
+package com.codeshare.platform.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.codeshare.platform.model.FileLease;
+
+@Repository
+public interface FileLeaseRepository extends JpaRepository<FileLease, Long> {
+    /**
+     * Insert the lease, or take over the existing one if it expired or belongs to the same user.
+     * @return 1 if the lease is now held by the user, 0 if another user holds it
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO file_leases (file_id, project_id, user_id, username, acquired_at, expires_at) "
+            + "VALUES (:fileId, :projectId, :userId, :username, :now, :expiresAt) "
+            + "ON CONFLICT (file_id) DO UPDATE SET project_id = EXCLUDED.project_id, "
+            + "user_id = EXCLUDED.user_id, username = EXCLUDED.username, "
+            + "acquired_at = EXCLUDED.acquired_at, expires_at = EXCLUDED.expires_at "
+            + "WHERE file_leases.expires_at < :now OR file_leases.user_id = :userId",
+            nativeQuery = true)
+    int acquire(@Param("fileId") Long fileId,
+                @Param("projectId") Long projectId,
+                @Param("userId") Long userId,
+                @Param("username") String username,
+                @Param("now") LocalDateTime now,
+                @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE FileLease l SET l.expiresAt = :expiresAt "
+            + "WHERE l.fileId = :fileId AND l.userId = :userId AND l.expiresAt >= :now")
+    int renew(@Param("fileId") Long fileId,
+              @Param("userId") Long userId,
+              @Param("now") LocalDateTime now,
+              @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM FileLease l WHERE l.fileId = :fileId AND l.userId = :userId")
+    int release(@Param("fileId") Long fileId, @Param("userId") Long userId);
+
+    List<FileLease> findByProjectId(Long projectId);
+
+    List<FileLease> findByExpiresAtBefore(LocalDateTime now);
+
+    /**
+     * Delete a lease only if it was not renewed or taken over since it was read
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM FileLease l WHERE l.fileId = :fileId AND l.expiresAt = :expiresAt")
+    int deleteIfUnchanged(@Param("fileId") Long fileId, @Param("expiresAt") LocalDateTime expiresAt);
+}
@@ -0,0 +1,27 @@
+package com.codeshare.platform.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.codeshare.platform.model.Branch;
+import com.codeshare.platform.model.FileVersion;
+
+@Repository
+public interface FileVersionRepository extends JpaRepository<FileVersion, Long> {
+    List<FileVersion> findByBranch(Branch branch);
+    Optional<FileVersion> findByBranchAndPath(Branch branch, String path);
+    List<FileVersion> findByBranchAndPathIn(Branch branch, Collection<String> paths);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM FileVersion v WHERE v.branch = :branch")
+    int deleteByBranch(@Param("branch") Branch branch);
+}
@@ -0,0 +1,23 @@
+package com.codeshare.platform.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.codeshare.platform.model.GitCommitMapping;
+
+@Repository
+public interface GitCommitMappingRepository extends JpaRepository<GitCommitMapping, Long> {
+    /**
+     * Record a mapping unless a concurrent export already did; exports are deterministic, so both agree
+     */
+    @Modifying
+    @Query(value = "INSERT INTO git_commit_mappings (commit_id, project_id, object_id) "
+            + "VALUES (:commitId, :projectId, :objectId) ON CONFLICT (commit_id) DO NOTHING",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("commitId") Long commitId,
+                       @Param("projectId") Long projectId,
+                       @Param("objectId") String objectId);
+}
@@ -0,0 +1,18 @@
+package com.codeshare.platform.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.codeshare.platform.model.LegacyCommitPayload;
+
+@Repository
+public interface LegacyCommitPayloadRepository extends JpaRepository<LegacyCommitPayload, Long> {
+    @Modifying
+    @Transactional
+    @Query("UPDATE LegacyCommitPayload p SET p.fileChanges = null, p.blobRefs = null WHERE p.id = :id")
+    int clearPayload(@Param("id") Long id);
+}
@@ -0,0 +1,29 @@
+package com.codeshare.platform.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.codeshare.platform.model.PullRequestFileStat;
+
+@Repository
+public interface PullRequestFileStatRepository extends JpaRepository<PullRequestFileStat, Long> {
+    List<PullRequestFileStat> findByPullRequestIdOrderByPath(Long pullRequestId);
+
+    /**
+     * Files after a path, for keyset pagination over the (pull_request_id, path) index
+     */
+    List<PullRequestFileStat> findByPullRequestIdAndPathGreaterThanOrderByPath(Long pullRequestId, String path, Pageable pageable);
+
+    Optional<PullRequestFileStat> findByPullRequestIdAndPath(Long pullRequestId, String path);
+
+    @Modifying
+    @Query("DELETE FROM PullRequestFileStat s WHERE s.pullRequestId = :pullRequestId")
+    int deleteByPullRequestId(@Param("pullRequestId") Long pullRequestId);
+}
@@ -1,12 +1,17 @@
 package com.codeshare.platform.repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.codeshare.platform.model.MergeabilityState;
 import com.codeshare.platform.model.Project;
 import com.codeshare.platform.model.PullRequest;
 import com.codeshare.platform.model.PullRequestStatus;
@@ -26,4 +31,64 @@ public interface PullRequestRepository extends JpaRepository<PullRequest, Long>
 
     @Query("SELECT pr FROM PullRequest pr WHERE pr.description LIKE %:mention%")
     List<PullRequest> findByDescriptionContaining(@Param("mention") String mention);
-}
\ No newline at end of file
+
+    @Query("SELECT pr FROM PullRequest pr JOIN FETCH pr.sourceBranch JOIN FETCH pr.targetBranch WHERE pr.id = :id")
+    Optional<PullRequest> findWithBranchesById(@Param("id") Long id);
+
+    @Query("SELECT pr FROM PullRequest pr WHERE pr.status = :status "
+            + "AND (pr.sourceBranch.id = :branchId OR pr.targetBranch.id = :branchId)")
+    List<PullRequest> findByStatusAndBranchId(@Param("status") PullRequestStatus status, @Param("branchId") Long branchId);
+
+    /**
+     * Reset the mergeability of a pull request to PENDING for a new pair of head commits
+     * @return 0 if the state already belongs to these heads
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE PullRequest pr SET pr.mergeabilityState = com.codeshare.platform.model.MergeabilityState.PENDING, "
+            + "pr.mergeable = false, pr.mergeConflictPaths = null, pr.mergeabilityCheckedAt = null, "
+            + "pr.mergeabilitySourceHeadId = :sourceHeadId, pr.mergeabilityTargetHeadId = :targetHeadId "
+            + "WHERE pr.id = :id AND (pr.mergeabilitySourceHeadId IS NULL OR pr.mergeabilityTargetHeadId IS NULL "
+            + "OR pr.mergeabilitySourceHeadId <> :sourceHeadId OR pr.mergeabilityTargetHeadId <> :targetHeadId)")
+    int markMergeabilityPending(@Param("id") Long id,
+                                @Param("sourceHeadId") Long sourceHeadId,
+                                @Param("targetHeadId") Long targetHeadId);
+
+    /**
+     * Store a mergeability result, unless the heads moved on while it was being computed
+     * @return 0 if the result was discarded
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE PullRequest pr SET pr.mergeabilityState = :state, pr.mergeable = :mergeable, "
+            + "pr.mergeConflictPaths = :conflictPaths, pr.mergeabilityCheckedAt = :checkedAt "
+            + "WHERE pr.id = :id AND pr.mergeabilitySourceHeadId = :sourceHeadId "
+            + "AND pr.mergeabilityTargetHeadId = :targetHeadId")
+    int recordMergeability(@Param("id") Long id,
+                           @Param("sourceHeadId") Long sourceHeadId,
+                           @Param("targetHeadId") Long targetHeadId,
+                           @Param("state") MergeabilityState state,
+                           @Param("mergeable") boolean mergeable,
+                           @Param("conflictPaths") String conflictPaths,
+                           @Param("checkedAt") LocalDateTime checkedAt);
+
+    /**
+     * Store the diff stats totals of a pair of head commits, unless stats of these heads are already stored;
+     * the per-file rows are written alongside. The caller checks that the heads are still current
+     * after this update has locked the row.
+     * @return 0 if the stored stats already belong to these heads
+     */
+    @Modifying
+    @Query("UPDATE PullRequest pr SET pr.diffStatsSourceHeadId = :sourceHeadId, pr.diffStatsTargetHeadId = :targetHeadId, "
+            + "pr.filesChanged = :filesChanged, pr.additions = :additions, pr.deletions = :deletions, "
+            + "pr.diffStatsComputedAt = :computedAt WHERE pr.id = :id AND (pr.diffStatsComputedAt IS NULL "
+            + "OR pr.diffStatsSourceHeadId IS NULL OR pr.diffStatsTargetHeadId IS NULL "
+            + "OR pr.diffStatsSourceHeadId <> :sourceHeadId OR pr.diffStatsTargetHeadId <> :targetHeadId)")
+    int recordDiffStats(@Param("id") Long id,
+                        @Param("sourceHeadId") Long sourceHeadId,
+                        @Param("targetHeadId") Long targetHeadId,
+                        @Param("filesChanged") int filesChanged,
+                        @Param("additions") int additions,
+                        @Param("deletions") int deletions,
+                        @Param("computedAt") LocalDateTime computedAt);
+}
@@ -0,0 +1,37 @@
+package com.codeshare.platform.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.codeshare.platform.model.Branch;
+import com.codeshare.platform.model.SnapshotCheckpoint;
+
+@Repository
+public interface SnapshotCheckpointRepository extends JpaRepository<SnapshotCheckpoint, Long> {
+    @Query("SELECT c.commitId FROM SnapshotCheckpoint c WHERE c.branch = :branch")
+    List<Long> findCommitIdsByBranch(@Param("branch") Branch branch);
+
+    /**
+     * Insert a checkpoint unless the commit already has one. The snapshot of a commit never changes,
+     * so concurrent writers of the same checkpoint store the same row and the loser is a no-op.
+     * @return 1 if inserted, 0 if the checkpoint already existed
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO snapshot_checkpoints (commit_id, branch_id, depth, snapshot, created_at) "
+            + "VALUES (:commitId, :branchId, :depth, :snapshot, :createdAt) "
+            + "ON CONFLICT (commit_id) DO NOTHING",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("commitId") Long commitId,
+                       @Param("branchId") Long branchId,
+                       @Param("depth") Integer depth,
+                       @Param("snapshot") String snapshot,
+                       @Param("createdAt") LocalDateTime createdAt);
+}
@@ -0,0 +1,32 @@
+package com.codeshare.platform.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.codeshare.platform.model.TreeNode;
+
+@Repository
+public interface TreeNodeRepository extends JpaRepository<TreeNode, String> {
+    @Query("SELECT t.hash FROM TreeNode t WHERE t.hash IN :hashes")
+    List<String> findExistingHashes(@Param("hashes") Collection<String> hashes);
+
+    /**
+     * Insert a tree node unless it exists; nodes are immutable, so a concurrent insert of the same node is harmless
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO tree_nodes (hash, entries, created_at) VALUES (:hash, :entries, :createdAt) "
+            + "ON CONFLICT (hash) DO NOTHING",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("hash") String hash,
+                       @Param("entries") String entries,
+                       @Param("createdAt") LocalDateTime createdAt);
+}
@@ -0,0 +1,280 @@
+package com.codeshare.platform.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.codeshare.platform.model.FileBlob;
+import com.codeshare.platform.repository.FileBlobRepository;
+import com.codeshare.platform.util.DeltaCodec;
+import com.codeshare.platform.util.LruCache;
+
+@Service
+public class BlobStore {
+
+    private static final String ENCODING_FULL = "FULL";
+    private static final String ENCODING_DELTA = "DELTA";
+
+    private final FileBlobRepository fileBlobRepository;
+    private final PayloadCodecService payloadCodecService;
+    
+    // Store new versions of large files as deltas against their previous version
+    @Value("${vcs.blob.delta.enabled:false}")
+    private boolean deltaEnabled;
+    
+    // A full copy is stored once a delta chain would grow longer than this
+    @Value("${vcs.blob.delta.max-chain:50}")
+    private int maxDeltaChain;
+    
+    // Files smaller than this are always stored in full
+    @Value("${vcs.blob.delta.min-size:4096}")
+    private int minDeltaSize;
+    
+    // Blobs never change, so their content can be cached without invalidation
+    private final LruCache<String, String> contentCache;
+
+    public BlobStore(FileBlobRepository fileBlobRepository,
+                     PayloadCodecService payloadCodecService,
+                     @Value("${vcs.blob-cache.max-bytes:67108864}") long maxCacheBytes) {
+        this.fileBlobRepository = fileBlobRepository;
+        this.payloadCodecService = payloadCodecService;
+        this.contentCache = new LruCache<>(maxCacheBytes, (hash, content) -> content.length());
+    }
+
+    /**
+     * Store content and return its hash.
+     * Content that is already stored costs a single lookup.
+     */
+    public String put(String content) {
+        if (content == null) {
+            return null;
+        }
+        String hash = hashOf(content);
+        if (contentCache.get(hash) == null && !fileBlobRepository.existsById(hash)) {
+            insertIfAbsent(List.of(newBlob(hash, content, null)));
+        }
+        contentCache.put(hash, content);
+        return hash;
+    }
+
+    /**
+     * Store the contents of a path -> content map
+     * @return path -> hash map, with null content mapped to a null hash
+     */
+    public Map<String, String> putAll(Map<String, String> contentByPath) {
+        return putAll(contentByPath, Map.of());
+    }
+
+    /**
+     * Store the contents of a path -> content map, using the previous version of each path
+     * as the delta base when delta storage is enabled
+     * @param baseHashByPath path -> hash of the previous version of the file
+     * @return path -> hash map, with null content mapped to a null hash
+     */
+    public Map<String, String> putAll(Map<String, String> contentByPath, Map<String, String> baseHashByPath) {
+        Map<String, String> hashByPath = new HashMap<>();
+        Map<String, String> contentByHash = new HashMap<>();
+        Map<String, String> baseByHash = new HashMap<>();
+
+        for (Map.Entry<String, String> entry : contentByPath.entrySet()) {
+            String content = entry.getValue();
+            String hash = content == null ? null : hashOf(content);
+            hashByPath.put(entry.getKey(), hash);
+            if (hash != null) {
+                contentByHash.put(hash, content);
+                String baseHash = baseHashByPath.get(entry.getKey());
+                if (baseHash != null) {
+                    baseByHash.putIfAbsent(hash, baseHash);
+                }
+            }
+        }
+
+        if (!contentByHash.isEmpty()) {
+            // One query to find which blobs already exist, then insert only the new ones
+            Set<String> existing = new HashSet<>(fileBlobRepository.findExistingHashes(contentByHash.keySet()));
+            List<FileBlob> newBlobs = new ArrayList<>();
+            for (Map.Entry<String, String> entry : contentByHash.entrySet()) {
+                if (!existing.contains(entry.getKey())) {
+                    newBlobs.add(newBlob(entry.getKey(), entry.getValue(), baseByHash.get(entry.getKey())));
+                }
+            }
+            insertIfAbsent(newBlobs);
+            contentByHash.forEach(contentCache::put);
+        }
+
+        return hashByPath;
+    }
+
+    /**
+     * Get the content of a blob, or null if it does not exist
+     */
+    public String get(String hash) {
+        if (hash == null) {
+            return null;
+        }
+        String content = contentCache.get(hash);
+        if (content == null) {
+            content = fileBlobRepository.findById(hash).map(this::resolve).orElse(null);
+            if (content != null) {
+                contentCache.put(hash, content);
+            }
+        }
+        return content;
+    }
+
+    /**
+     * Get the contents of several blobs at once
+     * @return hash -> content map; missing blobs are left out
+     */
+    public Map<String, String> getAll(Collection<String> hashes) {
+        Set<String> wanted = new HashSet<>(hashes);
+        wanted.remove(null);
+
+        Map<String, String> contentByHash = new HashMap<>();
+        Set<String> missing = new HashSet<>();
+        for (String hash : wanted) {
+            String content = contentCache.get(hash);
+            if (content != null) {
+                contentByHash.put(hash, content);
+            } else {
+                missing.add(hash);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            for (FileBlob blob : fileBlobRepository.findAllById(missing)) {
+                String content = resolve(blob);
+                contentByHash.put(blob.getHash(), content);
+                contentCache.put(blob.getHash(), content);
+            }
+        }
+        return contentByHash;
+    }
+
+    public Map<String, Object> getCacheStats() {
+        return contentCache.getStats();
+    }
+
+    /**
+     * SHA-256 of the UTF-8 encoded content, as lowercase hex
+     */
+    public static String hashOf(String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private FileBlob newBlob(String hash, String content, String baseHash) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+
+        FileBlob blob = new FileBlob();
+        blob.setHash(hash);
+        blob.setSize(bytes.length);
+        blob.setCreatedAt(LocalDateTime.now());
+        if (!storeAsDelta(blob, bytes, baseHash)) {
+            blob.setEncoding(ENCODING_FULL);
+            blob.setChainDepth(0);
+            blob.setData(payloadCodecService.encode(bytes));
+        }
+        return blob;
+    }
+
+    /**
+     * Fill in the blob as a delta against its base, if delta storage is enabled and worth it
+     * @return false if the blob should be stored in full
+     */
+    private boolean storeAsDelta(FileBlob blob, byte[] bytes, String baseHash) {
+        if (!deltaEnabled || baseHash == null || baseHash.equals(blob.getHash()) || bytes.length < minDeltaSize) {
+            return false;
+        }
+
+        Integer baseDepth = fileBlobRepository.findChainDepth(baseHash);
+        int chainDepth = (baseDepth == null ? 0 : baseDepth) + 1;
+        if (chainDepth > maxDeltaChain) {
+            return false;
+        }
+
+        String baseContent = get(baseHash);
+        if (baseContent == null) {
+            return false;
+        }
+
+        byte[] delta = DeltaCodec.encode(baseContent.getBytes(StandardCharsets.UTF_8), bytes);
+        if (delta.length > bytes.length / 2) {
+            return false;
+        }
+
+        blob.setEncoding(ENCODING_DELTA);
+        blob.setBaseHash(baseHash);
+        blob.setChainDepth(chainDepth);
+        blob.setData(payloadCodecService.encode(delta));
+        return true;
+    }
+
+    /**
+     * Get the content of a stored blob, applying its delta chain if it is stored as a delta.
+     * The chain is walked only back to the nearest cached or full blob.
+     */
+    private String resolve(FileBlob blob) {
+        Deque<FileBlob> deltas = new ArrayDeque<>();
+        String baseContent = null;
+        FileBlob current = blob;
+        while (ENCODING_DELTA.equals(current.getEncoding())) {
+            deltas.push(current);
+            baseContent = contentCache.get(current.getBaseHash());
+            if (baseContent != null) {
+                break;
+            }
+            String baseHash = current.getBaseHash();
+            current = fileBlobRepository.findById(baseHash)
+                    .orElseThrow(() -> new IllegalStateException("Delta base blob not found: " + baseHash));
+        }
+        if (baseContent == null) {
+            baseContent = fullContent(current);
+        }
+        if (deltas.isEmpty()) {
+            return baseContent;
+        }
+
+        // Apply the oldest delta first
+        byte[] bytes = baseContent.getBytes(StandardCharsets.UTF_8);
+        while (!deltas.isEmpty()) {
+            bytes = DeltaCodec.apply(bytes, payloadCodecService.decode(deltas.pop().getData()));
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Content of a full blob: plain text for blobs stored before compression, encoded bytes otherwise
+     */
+    private String fullContent(FileBlob blob) {
+        if (blob.getContent() != null) {
+            return blob.getContent();
+        }
+        return new String(payloadCodecService.decode(blob.getData()), StandardCharsets.UTF_8);
+    }
+
+    private void insertIfAbsent(List<FileBlob> blobs) {
+        for (FileBlob blob : blobs) {
+            fileBlobRepository.insertIfAbsent(blob.getHash(), blob.getEncoding(), blob.getBaseHash(),
+                    blob.getChainDepth(), blob.getData(), blob.getSize(), blob.getCreatedAt());
+        }
+    }
+}
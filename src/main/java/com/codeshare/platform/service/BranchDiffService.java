@@ -0,0 +1,207 @@
+package com.codeshare.platform.service;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.codeshare.platform.dto.BranchDiffStats;
+import com.codeshare.platform.dto.FileDiff;
+import com.codeshare.platform.dto.PathChange;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Per-file diff stats for a set of changed paths, computed on a shared, bounded fork/join pool.
+ * The path list is split in halves down to chunks, and idle workers steal the halves that were forked.
+ * Each request may only have a limited number of forked tasks outstanding, so one large diff
+ * cannot occupy every worker while other requests wait.
+ */
+@Service
+public class BranchDiffService {
+
+    private final BlobStore blobStore;
+    private final DiffService diffService;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    private final int maxParallelismPerRequest;
+
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong filesDiffed = new AtomicLong();
+
+    public BranchDiffService(BlobStore blobStore,
+                             DiffService diffService,
+                             @Value("${vcs.diff.pool-size:0}") int poolSize,
+                             @Value("${vcs.diff.chunk-size:16}") int chunkSize,
+                             @Value("${vcs.diff.max-parallelism-per-request:4}") int maxParallelismPerRequest) {
+        this.blobStore = blobStore;
+        this.diffService = diffService;
+        this.pool = new ForkJoinPool(poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors());
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxParallelismPerRequest = Math.max(1, maxParallelismPerRequest);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Diff every changed path and count added and deleted lines, from the old to the new blob of each path
+     */
+    public BranchDiffStats computeStats(List<PathChange> changes) {
+        requests.incrementAndGet();
+        long start = System.nanoTime();
+        DiffJob job = new DiffJob(changes);
+        if (!changes.isEmpty()) {
+            pool.invoke(new DiffTask(job, 0, changes.size()));
+        }
+
+        BranchDiffStats stats = new BranchDiffStats();
+        stats.setFiles(Arrays.asList(job.results));
+        for (BranchDiffStats.FileStats file : job.results) {
+            stats.setAdditions(stats.getAdditions() + file.getAdditions());
+            stats.setDeletions(stats.getDeletions() + file.getDeletions());
+        }
+        stats.setWallTimeMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        stats.setCpuTimeMs(TimeUnit.NANOSECONDS.toMillis(job.cpuNanos.get()));
+        stats.setParallelism(job.maxActive.get());
+        return stats;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("poolSize", pool.getParallelism());
+        stats.put("maxParallelismPerRequest", maxParallelismPerRequest);
+        stats.put("activeThreads", pool.getActiveThreadCount());
+        stats.put("queuedTasks", pool.getQueuedTaskCount());
+        stats.put("steals", pool.getStealCount());
+        stats.put("requests", requests.get());
+        stats.put("filesDiffed", filesDiffed.get());
+        return stats;
+    }
+
+    /**
+     * State shared by the tasks of one request
+     */
+    private final class DiffJob {
+        private final List<PathChange> changes;
+        private final BranchDiffStats.FileStats[] results;
+        // Forked tasks not yet finished; the calling task is not counted
+        private final AtomicInteger forked = new AtomicInteger();
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicInteger maxActive = new AtomicInteger();
+        private final AtomicLong cpuNanos = new AtomicLong();
+
+        DiffJob(List<PathChange> changes) {
+            this.changes = changes;
+            this.results = new BranchDiffStats.FileStats[changes.size()];
+        }
+
+        boolean tryFork() {
+            int current;
+            do {
+                current = forked.get();
+                if (current + 1 >= maxParallelismPerRequest) {
+                    return false;
+                }
+            } while (!forked.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        void forkDone() {
+            forked.decrementAndGet();
+        }
+
+        /**
+         * Diff a chunk of paths, loading its blobs with one lookup
+         */
+        void process(int from, int to) {
+            int running = active.incrementAndGet();
+            maxActive.accumulateAndGet(running, Math::max);
+            long cpuStart = threadMXBean.getCurrentThreadCpuTime();
+            try {
+                Set<String> hashes = new HashSet<>();
+                for (int i = from; i < to; i++) {
+                    hashes.add(changes.get(i).getOldBlobHash());
+                    hashes.add(changes.get(i).getNewBlobHash());
+                }
+                hashes.remove(null);
+                Map<String, String> contentByHash = blobStore.getAll(hashes);
+
+                for (int i = from; i < to; i++) {
+                    PathChange change = changes.get(i);
+                    FileDiff diff = diffService.diffBlobs(
+                            change.getOldBlobHash(), contentByHash.get(change.getOldBlobHash()),
+                            change.getNewBlobHash(), contentByHash.get(change.getNewBlobHash()));
+                    results[i] = new BranchDiffStats.FileStats(change.getPath(), diff.getAdditions(),
+                            diff.getDeletions(), diff.isExact());
+                }
+                filesDiffed.addAndGet(to - from);
+            } finally {
+                cpuNanos.addAndGet(threadMXBean.getCurrentThreadCpuTime() - cpuStart);
+                active.decrementAndGet();
+            }
+        }
+    }
+
+    private final class DiffTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient DiffJob job;
+        private final int from;
+        private final int to;
+        private final boolean forked;
+
+        DiffTask(DiffJob job, int from, int to) {
+            this(job, from, to, false);
+        }
+
+        private DiffTask(DiffJob job, int from, int to, boolean forked) {
+            this.job = job;
+            this.from = from;
+            this.to = to;
+            this.forked = forked;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                // Hand the upper half to other workers while the request is under its cap, keep the rest
+                List<DiffTask> tasks = new ArrayList<>();
+                int end = to;
+                while (end - from > chunkSize && job.tryFork()) {
+                    int mid = (from + end) >>> 1;
+                    DiffTask upper = new DiffTask(job, mid, end, true);
+                    upper.fork();
+                    tasks.add(upper);
+                    end = mid;
+                }
+                for (int start = from; start < end; start += chunkSize) {
+                    job.process(start, Math.min(end, start + chunkSize));
+                }
+                for (DiffTask task : tasks) {
+                    task.join();
+                }
+            } finally {
+                if (forked) {
+                    job.forkDone();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.codeshare.platform.service;
+
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.codeshare.platform.dto.BranchHeadMovedEvent;
+import com.codeshare.platform.exception.ConcurrentUpdateException;
+import com.codeshare.platform.model.Branch;
+import com.codeshare.platform.model.Commit;
+import com.codeshare.platform.repository.BranchRepository;
+import com.codeshare.platform.repository.CommitRepository;
+
+/**
+ * Reads and moves the head pointer of a branch.
+ * The head only moves through a compare-and-set on the branch head version,
+ * so concurrent appends to the same branch never share a parent.
+ * Every move publishes a {@link BranchHeadMovedEvent}.
+ */
+@Service
+public class BranchHeadService {
+
+    private final BranchRepository branchRepository;
+    private final CommitRepository commitRepository;
+    private final CommitPayloadService commitPayloadService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public BranchHeadService(BranchRepository branchRepository,
+                             CommitRepository commitRepository,
+                             CommitPayloadService commitPayloadService,
+                             ApplicationEventPublisher eventPublisher) {
+        this.branchRepository = branchRepository;
+        this.commitRepository = commitRepository;
+        this.commitPayloadService = commitPayloadService;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Current head pointer and version of a branch
+     */
+    public BranchRepository.HeadState readHead(Branch branch) {
+        return branchRepository.findHeadState(branch.getId());
+    }
+
+    /**
+     * Get the latest commit of a branch
+     */
+    public Optional<Commit> getHeadCommit(Branch branch) {
+        return getHeadCommit(branch, readHead(branch));
+    }
+
+    /**
+     * Get the commit a previously read head state points at.
+     * Branches whose head predates head tracking fall back to their newest commit.
+     */
+    public Optional<Commit> getHeadCommit(Branch branch, BranchRepository.HeadState head) {
+        if (head != null && head.getHeadCommitId() != null) {
+            return commitRepository.findById(head.getHeadCommitId());
+        }
+        return commitRepository.findFirstByBranchOrderByCreatedAtDesc(branch);
+    }
+
+    /**
+     * Id of the head commit of a branch, without loading the commit when the head pointer is set
+     * @return 0 for a branch without commits
+     */
+    public long getHeadCommitId(Branch branch) {
+        BranchRepository.HeadState head = readHead(branch);
+        if (head != null && head.getHeadCommitId() != null) {
+            return head.getHeadCommitId();
+        }
+        return getHeadCommit(branch, head).map(Commit::getId).orElse(0L);
+    }
+
+    /**
+     * Version a head state was read at, for use with {@link #append}
+     */
+    public long versionOf(BranchRepository.HeadState head) {
+        return head == null || head.getHeadVersion() == null ? 0 : head.getHeadVersion();
+    }
+
+    /**
+     * Save a commit and make it the head of its branch, if the head is still at the expected version.
+     * The head row is locked and checked before anything is written, so a lost race writes nothing and
+     * does not mark a surrounding transaction rollback-only: the caller can retry within it.
+     * @throws ConcurrentUpdateException if the branch head moved since expectedVersion was read
+     */
+    @Transactional(noRollbackFor = ConcurrentUpdateException.class)
+    public Commit append(Commit commit, Map<String, String> blobRefs, long expectedVersion) {
+        BranchRepository.HeadState head = branchRepository.lockHeadState(commit.getBranch().getId());
+        if (versionOf(head) != expectedVersion) {
+            throw new ConcurrentUpdateException("Branch " + commit.getBranch().getName() + " was updated concurrently");
+        }
+
+        Commit savedCommit = commitRepository.save(commit);
+        commitPayloadService.writeBlobRefs(savedCommit, blobRefs);
+        if (branchRepository.advanceHead(commit.getBranch().getId(), expectedVersion, savedCommit.getId()) == 0) {
+            // Cannot happen while the row lock is held; fail with rollback rather than keep an orphan commit
+            throw new IllegalStateException("Head of branch " + commit.getBranch().getName() + " moved while locked");
+        }
+        eventPublisher.publishEvent(new BranchHeadMovedEvent(commit.getBranch().getId(), savedCommit.getId()));
+        return savedCommit;
+    }
+}
@@ -0,0 +1,301 @@
+package com.codeshare.platform.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.codeshare.platform.model.Commit;
+import com.codeshare.platform.repository.CommitRepository;
+import com.codeshare.platform.util.LruCache;
+
+/**
+ * Ancestry queries over the commit graph, where a commit points at its parent and, for merge commits,
+ * at the source head it merged in.
+ *
+ * The graph of each project is kept in memory as parallel arrays indexed by position, with a generation
+ * number per commit (1 for root commits, otherwise one more than the highest parent). Walks visit commits
+ * in generation order and stop as soon as the answer is known, without loading any Commit entity.
+ */
+@Service
+public class CommitGraphService {
+
+    private static final int REACHABLE_FROM_FIRST = 1;
+    private static final int REACHABLE_FROM_SECOND = 2;
+    private static final int REACHABLE_FROM_BOTH = REACHABLE_FROM_FIRST | REACHABLE_FROM_SECOND;
+
+    private final CommitRepository commitRepository;
+
+    // Graphs of the most recently used projects
+    private final LruCache<Long, ProjectGraph> graphs;
+
+    private final AtomicLong loadedCommits = new AtomicLong();
+
+    public CommitGraphService(CommitRepository commitRepository,
+                              @Value("${vcs.commit-graph.max-projects:200}") int maxProjects) {
+        this.commitRepository = commitRepository;
+        this.graphs = new LruCache<>(maxProjects, (projectId, graph) -> 1);
+    }
+
+    /**
+     * Find the lowest common ancestor of two commits.
+     * Both histories are walked highest generation first, marking which side reaches each commit;
+     * the first commit reached from both sides is the merge base.
+     * @return empty if the commits share no history
+     */
+    public Optional<Commit> findMergeBase(Commit ours, Commit theirs) {
+        ProjectGraph graph = graphOf(ours, theirs);
+        Long baseId;
+        synchronized (graph) {
+            int base = graph.mergeBase(graph.require(ours.getId()), graph.require(theirs.getId()));
+            baseId = base < 0 ? null : graph.ids[base];
+        }
+        return baseId == null ? Optional.empty() : commitRepository.findById(baseId);
+    }
+
+    /**
+     * Whether ancestor is reachable from descendant; a commit is its own ancestor.
+     * A target branch whose head is an ancestor of the source head can be fast-forwarded.
+     */
+    public boolean isAncestor(Commit ancestor, Commit descendant) {
+        ProjectGraph graph = graphOf(ancestor, descendant);
+        synchronized (graph) {
+            return graph.isAncestor(graph.require(ancestor.getId()), graph.require(descendant.getId()));
+        }
+    }
+
+    /**
+     * Ids of the commits reachable from head but not from excluded, highest generation first
+     * @param excluded may be null to list the whole history of head
+     */
+    public List<Long> findCommitIdsNotIn(Commit head, Commit excluded) {
+        ProjectGraph graph = excluded == null ? graphOf(head, head) : graphOf(head, excluded);
+        synchronized (graph) {
+            return graph.reachableOnlyFromFirst(graph.require(head.getId()),
+                    excluded == null ? -1 : graph.require(excluded.getId()));
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>(graphs.getStats());
+        stats.put("loadedCommits", loadedCommits.get());
+        return stats;
+    }
+
+    /**
+     * Graph of the project of two commits, extended with commits created since it was loaded
+     */
+    private ProjectGraph graphOf(Commit first, Commit second) {
+        Long projectId = first.getBranch().getProject().getId();
+        ProjectGraph graph;
+        synchronized (graphs) {
+            graph = graphs.get(projectId);
+            if (graph == null) {
+                graph = new ProjectGraph();
+                graphs.put(projectId, graph);
+            }
+        }
+
+        synchronized (graph) {
+            if (graph.indexOf(first.getId()) < 0 || graph.indexOf(second.getId()) < 0) {
+                // Ids grow with creation time and parents are created before their children,
+                // so new commits are normally appended in id order
+                if (!load(projectId, graph) || graph.indexOf(first.getId()) < 0 || graph.indexOf(second.getId()) < 0) {
+                    // A commit with a lower id became visible late; start over
+                    graph.clear();
+                    load(projectId, graph);
+                }
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Append the commits of a project newer than the newest one in the graph
+     * @return false if a parent of a new commit is missing from the graph
+     */
+    private boolean load(Long projectId, ProjectGraph graph) {
+        boolean complete = true;
+        for (CommitRepository.GraphEdge edge : commitRepository.findGraphEdges(projectId, graph.maxId())) {
+            complete &= graph.add(edge.getId(), edge.getParentId(), edge.getMergeParentId());
+            loadedCommits.incrementAndGet();
+        }
+        return complete;
+    }
+
+    private static final class ProjectGraph {
+        private long[] ids = new long[16]; // ascending
+        private int[] firstParent = new int[16]; // index, or -1 for none
+        private int[] secondParent = new int[16];
+        private int[] generation = new int[16];
+        private int size;
+
+        long maxId() {
+            return size == 0 ? 0 : ids[size - 1];
+        }
+
+        int indexOf(Long id) {
+            if (id == null) {
+                return -1;
+            }
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            return index < 0 ? -1 : index;
+        }
+
+        int require(Long id) {
+            int index = indexOf(id);
+            if (index < 0) {
+                throw new IllegalArgumentException("Commit " + id + " is not in the commit graph of its project");
+            }
+            return index;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        /**
+         * @return false if a parent is not in the graph; the commit is added as if it had no such parent
+         */
+        boolean add(long id, Long parentId, Long mergeParentId) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                firstParent = Arrays.copyOf(firstParent, capacity);
+                secondParent = Arrays.copyOf(secondParent, capacity);
+                generation = Arrays.copyOf(generation, capacity);
+            }
+            int parent = indexOf(parentId);
+            int mergeParent = indexOf(mergeParentId);
+            ids[size] = id;
+            firstParent[size] = parent;
+            secondParent[size] = mergeParent;
+            generation[size] = 1 + Math.max(parent < 0 ? 0 : generation[parent], mergeParent < 0 ? 0 : generation[mergeParent]);
+            size++;
+            return (parentId == null || parent >= 0) && (mergeParentId == null || mergeParent >= 0);
+        }
+
+        int mergeBase(int first, int second) {
+            if (first == second) {
+                return first;
+            }
+            Walk walk = new Walk();
+            walk.mark(first, REACHABLE_FROM_FIRST);
+            walk.mark(second, REACHABLE_FROM_SECOND);
+
+            while (!walk.queue.isEmpty()) {
+                int commit = walk.poll();
+                int flags = walk.reachedFrom.get(commit);
+                if (flags == REACHABLE_FROM_BOTH) {
+                    return commit;
+                }
+                walk.markParents(commit, flags);
+            }
+            return -1;
+        }
+
+        boolean isAncestor(int ancestor, int descendant) {
+            int minGeneration = generation[ancestor];
+            BitSet visited = new BitSet(size);
+            Deque<Integer> stack = new ArrayDeque<>();
+            stack.push(descendant);
+            while (!stack.isEmpty()) {
+                int commit = stack.pop();
+                if (commit == ancestor) {
+                    return true;
+                }
+                // Nothing at or below the ancestor's generation can reach it
+                if (generation[commit] <= minGeneration || visited.get(commit)) {
+                    continue;
+                }
+                visited.set(commit);
+                if (firstParent[commit] >= 0) {
+                    stack.push(firstParent[commit]);
+                }
+                if (secondParent[commit] >= 0) {
+                    stack.push(secondParent[commit]);
+                }
+            }
+            return false;
+        }
+
+        List<Long> reachableOnlyFromFirst(int first, int second) {
+            Walk walk = new Walk();
+            walk.mark(first, REACHABLE_FROM_FIRST);
+            if (second >= 0) {
+                walk.mark(second, REACHABLE_FROM_SECOND);
+            }
+
+            // Once every queued commit is reachable from the second side, so are all remaining ancestors
+            List<Long> result = new ArrayList<>();
+            while (walk.onlyFromFirst > 0) {
+                int commit = walk.poll();
+                int flags = walk.reachedFrom.get(commit);
+                if (flags == REACHABLE_FROM_FIRST) {
+                    result.add(ids[commit]);
+                }
+                walk.markParents(commit, flags);
+            }
+            return result;
+        }
+
+        /**
+         * Walk from one or two start commits, highest generation first. A commit's generation is above
+         * all of its ancestors', so a commit is only visited after every queued descendant.
+         */
+        private final class Walk {
+            private final Map<Integer, Integer> reachedFrom = new HashMap<>();
+            private final PriorityQueue<Integer> queue = new PriorityQueue<>(
+                    Comparator.<Integer>comparingInt(index -> generation[index])
+                            .thenComparingInt(index -> index)
+                            .reversed());
+            // Queued commits not reachable from the second start commit
+            private int onlyFromFirst;
+
+            int poll() {
+                int commit = queue.poll();
+                if (reachedFrom.get(commit) == REACHABLE_FROM_FIRST) {
+                    onlyFromFirst--;
+                }
+                return commit;
+            }
+
+            void markParents(int commit, int flags) {
+                if (firstParent[commit] >= 0) {
+                    mark(firstParent[commit], flags);
+                }
+                if (secondParent[commit] >= 0) {
+                    mark(secondParent[commit], flags);
+                }
+            }
+
+            void mark(int commit, int flags) {
+                Integer previous = reachedFrom.get(commit);
+                if (previous == null) {
+                    reachedFrom.put(commit, flags);
+                    queue.add(commit);
+                    if (flags == REACHABLE_FROM_FIRST) {
+                        onlyFromFirst++;
+                    }
+                } else {
+                    // Still queued, since descendants are visited first; the new flags are seen when it is polled
+                    reachedFrom.put(commit, previous | flags);
+                    if (previous == REACHABLE_FROM_FIRST && (flags & REACHABLE_FROM_SECOND) != 0) {
+                        onlyFromFirst--;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.codeshare.platform.service;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.stereotype.Service;
+
+import com.codeshare.platform.model.Branch;
+import com.codeshare.platform.model.Commit;
+import com.codeshare.platform.model.CommitPayload;
+import com.codeshare.platform.model.LegacyCommitPayload;
+import com.codeshare.platform.repository.CommitPayloadRepository;
+import com.codeshare.platform.repository.LegacyCommitPayloadRepository;
+import com.codeshare.platform.repository.SnapshotCheckpointRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Single place where commit file changes are written and read.
+ * Commits store path -> blob hash references in the commit_payloads table; commits written
+ * before that keep their payload in the commits table and are moved over the first time they are read.
+ */
+@Service
+public class CommitPayloadService {
+
+    private final BlobStore blobStore;
+    private final CommitPayloadRepository commitPayloadRepository;
+    private final LegacyCommitPayloadRepository legacyPayloadRepository;
+    private final SnapshotCheckpointRepository checkpointRepository;
+    private final ObjectMapper objectMapper;
+
+    public CommitPayloadService(BlobStore blobStore,
+                                CommitPayloadRepository commitPayloadRepository,
+                                LegacyCommitPayloadRepository legacyPayloadRepository,
+                                SnapshotCheckpointRepository checkpointRepository,
+                                ObjectMapper objectMapper) {
+        this.blobStore = blobStore;
+        this.commitPayloadRepository = commitPayloadRepository;
+        this.legacyPayloadRepository = legacyPayloadRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Store file contents in the blob store
+     * @param baseRefs path -> blob hash snapshot the changes are based on, used as delta bases
+     * @return path -> blob hash map of the changed files
+     */
+    public Map<String, String> storeFileChanges(Map<String, String> fileChanges, Map<String, String> baseRefs) {
+        return blobStore.putAll(fileChanges, baseRefs);
+    }
+
+    /**
+     * Point a saved commit at the blobs of its changed files
+     */
+    public void writeBlobRefs(Commit commit, Map<String, String> blobRefs) {
+        commitPayloadRepository.save(new CommitPayload(commit.getId(), toJson(blobRefs)));
+    }
+
+    /**
+     * Get the path -> blob hash map of the files changed by a commit
+     */
+    public Map<String, String> readBlobRefs(Commit commit) {
+        return commitPayloadRepository.findById(commit.getId())
+                .map(payload -> parse(payload.getBlobRefs()))
+                .orElseGet(() -> migrateLegacyPayload(commit.getId()));
+    }
+
+    /**
+     * Get the path -> blob hash maps of several commits with one query
+     * @return commit id -> changed files
+     */
+    public Map<Long, Map<String, String>> readBlobRefs(Collection<Commit> commits) {
+        Set<Long> commitIds = new HashSet<>();
+        for (Commit commit : commits) {
+            commitIds.add(commit.getId());
+        }
+
+        Map<Long, Map<String, String>> blobRefsByCommit = new HashMap<>();
+        for (CommitPayload payload : commitPayloadRepository.findAllById(commitIds)) {
+            blobRefsByCommit.put(payload.getCommitId(), parse(payload.getBlobRefs()));
+        }
+        for (Long commitId : commitIds) {
+            if (!blobRefsByCommit.containsKey(commitId)) {
+                blobRefsByCommit.put(commitId, migrateLegacyPayload(commitId));
+            }
+        }
+        return blobRefsByCommit;
+    }
+
+    /**
+     * Get the path -> content map of the files changed by a commit
+     */
+    public Map<String, String> readFileChanges(Commit commit) {
+        Map<String, String> blobRefs = readBlobRefs(commit);
+        Map<String, String> contentByHash = blobStore.getAll(blobRefs.values());
+
+        Map<String, String> fileChanges = new HashMap<>();
+        for (Map.Entry<String, String> entry : blobRefs.entrySet()) {
+            fileChanges.put(entry.getKey(), contentByHash.get(entry.getValue()));
+        }
+        return fileChanges;
+    }
+
+    /**
+     * Move the payload a commit still has in the commits table to the blob store and commit_payloads.
+     * Runs from read paths, so every write is idempotent: blobs and the payload row are inserted only
+     * if absent, and clearing the legacy columns twice is harmless.
+     */
+    private Map<String, String> migrateLegacyPayload(Long commitId) {
+        LegacyCommitPayload legacy = legacyPayloadRepository.findById(commitId).orElse(null);
+        if (legacy == null) {
+            return new HashMap<>();
+        }
+        if (legacy.getBlobRefs() == null && legacy.getFileChanges() == null) {
+            // Another reader migrated it since commit_payloads was read
+            return commitPayloadRepository.findById(commitId)
+                    .map(payload -> parse(payload.getBlobRefs()))
+                    .orElseGet(HashMap::new);
+        }
+
+        Map<String, String> blobRefs = legacy.getBlobRefs() != null
+                ? parse(legacy.getBlobRefs())
+                : blobStore.putAll(parse(legacy.getFileChanges()));
+        commitPayloadRepository.insertIfAbsent(commitId, toJson(blobRefs));
+        legacyPayloadRepository.clearPayload(commitId);
+        return blobRefs;
+    }
+
+    /**
+     * Store the full path -> blob hash snapshot of a commit as a checkpoint.
+     * Idempotent, so read paths may backfill checkpoints concurrently with each other and with commits.
+     */
+    public void writeCheckpoint(Commit commit, Map<String, String> snapshotRefs) {
+        checkpointRepository.insertIfAbsent(commit.getId(), commit.getBranch().getId(), commit.getDepth(),
+                toJson(snapshotRefs), LocalDateTime.now());
+    }
+
+    /**
+     * Ids of the commits of a branch that have a checkpoint
+     */
+    public Set<Long> findCheckpointCommitIds(Branch branch) {
+        return new HashSet<>(checkpointRepository.findCommitIdsByBranch(branch));
+    }
+
+    /**
+     * Get the snapshot stored in a checkpoint, or null if the commit has none
+     */
+    public Map<String, String> readCheckpoint(Long commitId) {
+        return checkpointRepository.findById(commitId)
+                .map(checkpoint -> parse(checkpoint.getSnapshot()))
+                .orElse(null);
+    }
+
+    private String toJson(Map<String, String> refs) {
+        try {
+            return objectMapper.writeValueAsString(refs);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize file changes", e);
+        }
+    }
+
+    private Map<String, String> parse(String json) {
+        if (json == null || json.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        try {
+            return objectMapper.readValue(json, new TypeReference<HashMap<String, String>>() {});
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to parse file changes", e);
+        }
+    }
+}
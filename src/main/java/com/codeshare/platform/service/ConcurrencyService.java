@@ -1,63 +1,188 @@
 package com.codeshare.platform.service;
 
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.codeshare.platform.util.LruCache;
+
 @Service
 public class ConcurrencyService {
-    
-    // Map to store locks for each project
-    private final Map<Long, ReadWriteLock> projectLocks = new ConcurrentHashMap<>();
-    
+
+    private final ProjectLockProvider lockProvider;
+
+    // Locks held by the current thread, so nested calls for the same project do not lock twice
+    private final ThreadLocal<Map<Long, HeldLock>> heldLocks = ThreadLocal.withInitial(HashMap::new);
+
+    // Wait and hold times for all projects, and for the most recently locked ones
+    private final LockStats totalStats = new LockStats();
+    private final LruCache<Long, LockStats> projectStats;
+
+    public ConcurrencyService(ProjectLockProvider lockProvider,
+                              @Value("${vcs.lock.stats.max-projects:1000}") int maxTrackedProjects) {
+        this.lockProvider = lockProvider;
+        this.projectStats = new LruCache<>(maxTrackedProjects, (projectId, stats) -> 1);
+    }
+
     /**
-     * Get a read lock for a specific project
+     * Execute a read operation with proper locking
      * Read locks allow multiple readers but block writers
      */
-    public Lock getProjectReadLock(Long projectId) {
-        ReadWriteLock lock = projectLocks.computeIfAbsent(projectId, k -> new ReentrantReadWriteLock());
-        return lock.readLock();
+    public <T> T executeWithReadLock(Long projectId, LockCallback<T> callback) {
+        return executeWithLock(projectId, ProjectLockProvider.Mode.READ, callback);
     }
-    
+
     /**
-     * Get a write lock for a specific project
+     * Execute a write operation with proper locking
      * Write locks block both readers and other writers
      */
-    public Lock getProjectWriteLock(Long projectId) {
-        ReadWriteLock lock = projectLocks.computeIfAbsent(projectId, k -> new ReentrantReadWriteLock());
-        return lock.writeLock();
+    public <T> T executeWithWriteLock(Long projectId, LockCallback<T> callback) {
+        return executeWithLock(projectId, ProjectLockProvider.Mode.WRITE, callback);
     }
-    
+
     /**
-     * Execute a read operation with proper locking
+     * Execute a read operation without locking, retrying under a read lock if a write interleaved.
+     * The callback may run twice, the second time under the read lock, so its side effects must be
+     * idempotent: caching, inserts that skip existing rows (ON CONFLICT DO NOTHING) and updates guarded
+     * by the state they expect. Anything else, such as saving a loaded entity, belongs after the call.
+     * Providers without optimistic read support always take the read lock.
      */
-    public <T> T executeWithReadLock(Long projectId, LockCallback<T> callback) {
-        Lock lock = getProjectReadLock(projectId);
-        lock.lock();
-        try {
+    public <T> T executeWithOptimisticRead(Long projectId, LockCallback<T> callback) {
+        if (heldLocks.get().containsKey(projectId)) {
             return callback.execute();
-        } finally {
-            lock.unlock();
         }
+
+        long stamp = lockProvider.tryOptimisticRead(projectId);
+        if (stamp != 0) {
+            LockStats stats = statsFor(projectId);
+            T result;
+            try {
+                result = callback.execute();
+            } catch (RuntimeException e) {
+                // A failure caused by a concurrent write is retried under the lock; any other failure is real
+                if (lockProvider.validate(projectId, stamp)) {
+                    throw e;
+                }
+                stats.recordOptimisticRetry();
+                totalStats.recordOptimisticRetry();
+                return executeWithReadLock(projectId, callback);
+            }
+            if (lockProvider.validate(projectId, stamp)) {
+                stats.recordOptimisticRead();
+                totalStats.recordOptimisticRead();
+                return result;
+            }
+            stats.recordOptimisticRetry();
+            totalStats.recordOptimisticRetry();
+        }
+        return executeWithReadLock(projectId, callback);
     }
-    
+
     /**
-     * Execute a write operation with proper locking
+     * Lock wait and hold times in milliseconds, overall and for the most recently locked projects
      */
-    public <T> T executeWithWriteLock(Long projectId, LockCallback<T> callback) {
-        Lock lock = getProjectWriteLock(projectId);
-        lock.lock();
+    public Map<String, Object> getLockStats() {
+        Map<String, Object> projects = new LinkedHashMap<>();
+        projectStats.snapshot().forEach((projectId, stats) -> projects.put(String.valueOf(projectId), stats.toMap()));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("provider", lockProvider.getName());
+        result.put("providerStats", lockProvider.getStats());
+        result.put("total", totalStats.toMap());
+        result.put("projects", projects);
+        return result;
+    }
+
+    private <T> T executeWithLock(Long projectId, ProjectLockProvider.Mode mode, LockCallback<T> callback) {
+        Map<Long, HeldLock> held = heldLocks.get();
+        HeldLock current = held.get(projectId);
+        if (current != null) {
+            // A write lock covers nested reads and writes; a read lock cannot be upgraded without deadlocking
+            if (mode == ProjectLockProvider.Mode.WRITE && current.mode == ProjectLockProvider.Mode.READ) {
+                throw new IllegalStateException("Cannot upgrade a read lock to a write lock on project " + projectId);
+            }
+            return callback.execute();
+        }
+
+        LockStats stats = statsFor(projectId);
+        long waitStart = System.nanoTime();
+        ProjectLockProvider.Handle handle = lockProvider.acquire(projectId, mode);
+        long holdStart = System.nanoTime();
+        stats.recordWait(holdStart - waitStart);
+        totalStats.recordWait(holdStart - waitStart);
+
+        held.put(projectId, new HeldLock(mode));
         try {
             return callback.execute();
         } finally {
-            lock.unlock();
+            held.remove(projectId);
+            handle.close();
+            long holdNanos = System.nanoTime() - holdStart;
+            stats.recordHold(holdNanos);
+            totalStats.recordHold(holdNanos);
         }
     }
-    
+
+    private LockStats statsFor(Long projectId) {
+        synchronized (projectStats) {
+            LockStats stats = projectStats.get(projectId);
+            if (stats == null) {
+                stats = new LockStats();
+                projectStats.put(projectId, stats);
+            }
+            return stats;
+        }
+    }
+
+    private record HeldLock(ProjectLockProvider.Mode mode) {}
+
+    private static class LockStats {
+        private final AtomicLong acquisitions = new AtomicLong();
+        private final AtomicLong totalWaitNanos = new AtomicLong();
+        private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+        private final AtomicLong totalHoldNanos = new AtomicLong();
+        private final LongAccumulator maxHoldNanos = new LongAccumulator(Math::max, 0);
+        private final AtomicLong optimisticReads = new AtomicLong();
+        private final AtomicLong optimisticRetries = new AtomicLong();
+
+        void recordWait(long nanos) {
+            acquisitions.incrementAndGet();
+            totalWaitNanos.addAndGet(nanos);
+            maxWaitNanos.accumulate(nanos);
+        }
+
+        void recordHold(long nanos) {
+            totalHoldNanos.addAndGet(nanos);
+            maxHoldNanos.accumulate(nanos);
+        }
+
+        void recordOptimisticRead() {
+            optimisticReads.incrementAndGet();
+        }
+
+        void recordOptimisticRetry() {
+            optimisticRetries.incrementAndGet();
+        }
+
+        Map<String, Object> toMap() {
+            long count = acquisitions.get();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("acquisitions", count);
+            map.put("avgWaitMs", count == 0 ? 0.0 : totalWaitNanos.get() / 1e6 / count);
+            map.put("maxWaitMs", maxWaitNanos.get() / 1e6);
+            map.put("avgHoldMs", count == 0 ? 0.0 : totalHoldNanos.get() / 1e6 / count);
+            map.put("maxHoldMs", maxHoldNanos.get() / 1e6);
+            map.put("optimisticReads", optimisticReads.get());
+            map.put("optimisticRetries", optimisticRetries.get());
+            return map;
+        }
+    }
+
     /**
      * Functional interface for operations that need to be executed under a lock
      */
@@ -65,4 +190,4 @@ public class ConcurrencyService {
     public interface LockCallback<T> {
         T execute();
     }
-}
\ No newline at end of file
+}
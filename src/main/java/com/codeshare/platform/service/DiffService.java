@@ -0,0 +1,361 @@
+package com.codeshare.platform.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.diff.HistogramDiff;
+import org.eclipse.jgit.diff.MyersDiff;
+import org.eclipse.jgit.diff.Sequence;
+import org.eclipse.jgit.diff.SequenceComparator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.codeshare.platform.dto.FileDiff;
+import com.codeshare.platform.util.LruCache;
+
+/**
+ * Line diffs of file contents, using JGit's histogram or Myers implementation.
+ * Histogram diff falls back to Myers for highly repetitive regions, and JGit's Myers works in linear space.
+ * Every diff has a line and time budget; a file over budget is reported as fully replaced,
+ * which is still correct but not minimal, so a pathological input cannot pin a CPU.
+ *
+ * Blobs never change, so diffs are cached by the content hashes of both versions. Only diffs that took
+ * a while to compute are admitted, since cheap ones would just push expensive ones out of the cache.
+ * Returned diffs may be shared through the cache and must not be modified.
+ */
+@Service
+public class DiffService {
+
+    public enum Algorithm { HISTOGRAM, MYERS }
+
+    // How often the comparator checks the deadline, as a mask on the number of comparisons
+    private static final int DEADLINE_CHECK_MASK = 0x3FF;
+
+    // Rough weight of a cache key and the diff objects, on top of the hunk lines
+    private static final int ENTRY_OVERHEAD = 256;
+
+    private final Algorithm defaultAlgorithm;
+    private final int contextLines;
+    private final int maxLines;
+    private final long timeoutNanos;
+
+    // Diffs by content hashes, weighted by the characters of their hunk lines
+    private final LruCache<DiffKey, FileDiff> cache;
+    private final long minCacheNanos;
+
+    private final AtomicLong diffs = new AtomicLong();
+    private final AtomicLong overBudget = new AtomicLong();
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong tooCheapToCache = new AtomicLong();
+
+    public DiffService(@Value("${vcs.diff.algorithm:HISTOGRAM}") Algorithm defaultAlgorithm,
+                       @Value("${vcs.diff.context-lines:3}") int contextLines,
+                       @Value("${vcs.diff.max-lines:50000}") int maxLines,
+                       @Value("${vcs.diff.timeout-ms:2000}") long timeoutMillis,
+                       @Value("${vcs.diff-cache.max-bytes:33554432}") long maxCacheBytes,
+                       @Value("${vcs.diff-cache.min-compute-micros:200}") long minCacheMicros) {
+        this.defaultAlgorithm = defaultAlgorithm;
+        this.contextLines = contextLines;
+        this.maxLines = maxLines;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        this.cache = new LruCache<>(maxCacheBytes, (key, diff) -> weigh(diff));
+        this.minCacheNanos = TimeUnit.MICROSECONDS.toNanos(minCacheMicros);
+    }
+
+    /**
+     * Diff two versions of a file with the default algorithm; null content is an absent file
+     */
+    public FileDiff diff(String oldContent, String newContent) {
+        return diff(oldContent, newContent, defaultAlgorithm);
+    }
+
+    public FileDiff diff(String oldContent, String newContent, Algorithm algorithm) {
+        return diff(hashOf(oldContent), oldContent, hashOf(newContent), newContent, algorithm);
+    }
+
+    /**
+     * Diff two stored blobs whose hashes are already known, which saves hashing the content
+     */
+    public FileDiff diffBlobs(String oldHash, String oldContent, String newHash, String newContent) {
+        if ((oldHash != null && oldContent == null) || (newHash != null && newContent == null)) {
+            // A blob that could not be loaded; the result must not be cached under its hash
+            return compute(oldContent, newContent, defaultAlgorithm);
+        }
+        return diff(oldHash, oldContent, newHash, newContent, defaultAlgorithm);
+    }
+
+    private FileDiff diff(String oldHash, String oldContent, String newHash, String newContent, Algorithm algorithm) {
+        DiffKey key = new DiffKey(oldHash, newHash, algorithm, contextLines);
+        FileDiff cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        long start = System.nanoTime();
+        FileDiff diff = compute(oldContent, newContent, algorithm);
+        if (System.nanoTime() - start >= minCacheNanos) {
+            cache.put(key, diff);
+            admitted.incrementAndGet();
+        } else {
+            tooCheapToCache.incrementAndGet();
+        }
+        return diff;
+    }
+
+    private FileDiff compute(String oldContent, String newContent, Algorithm algorithm) {
+        diffs.incrementAndGet();
+        Lines oldLines = new Lines(oldContent);
+        Lines newLines = new Lines(newContent);
+
+        EditList edits;
+        boolean exact = true;
+        if (oldLines.size() + newLines.size() > maxLines) {
+            edits = replaceAll(oldLines, newLines);
+            exact = false;
+        } else {
+            try {
+                LineComparator comparator = new LineComparator(System.nanoTime() + timeoutNanos);
+                edits = algorithmFor(algorithm, comparator).diff(comparator, oldLines, newLines);
+            } catch (BudgetExceededException e) {
+                edits = replaceAll(oldLines, newLines);
+                exact = false;
+            }
+        }
+        if (!exact) {
+            overBudget.incrementAndGet();
+        }
+
+        FileDiff diff = toHunks(edits, oldLines, newLines);
+        diff.setExact(exact);
+        return diff;
+    }
+
+    /**
+     * Render a diff in the unified format used by the commit views, or "" if nothing changed
+     */
+    public String formatUnified(FileDiff diff) {
+        StringBuilder out = new StringBuilder();
+        for (FileDiff.Hunk hunk : diff.getHunks()) {
+            out.append("@@ -").append(hunk.getOldStart()).append(',').append(hunk.getOldLines())
+               .append(" +").append(hunk.getNewStart()).append(',').append(hunk.getNewLines()).append(" @@\n");
+            for (String line : hunk.getLines()) {
+                out.append(line).append('\n');
+            }
+        }
+        return out.toString();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("algorithm", defaultAlgorithm);
+        stats.put("diffs", diffs.get());
+        stats.put("overBudget", overBudget.get());
+
+        Map<String, Object> cacheStats = new LinkedHashMap<>(cache.getStats());
+        cacheStats.put("admitted", admitted.get());
+        cacheStats.put("tooCheapToCache", tooCheapToCache.get());
+        stats.put("cache", cacheStats);
+        return stats;
+    }
+
+    private static String hashOf(String content) {
+        return content == null ? null : BlobStore.hashOf(content);
+    }
+
+    private static long weigh(FileDiff diff) {
+        long weight = ENTRY_OVERHEAD;
+        for (FileDiff.Hunk hunk : diff.getHunks()) {
+            for (String line : hunk.getLines()) {
+                weight += line.length();
+            }
+        }
+        return weight;
+    }
+
+    /**
+     * JGit's algorithms with every Myers step checking the comparator's deadline,
+     * including histogram's fallback for repetitive regions
+     */
+    private DiffAlgorithm algorithmFor(Algorithm algorithm, LineComparator comparator) {
+        DiffAlgorithm myers = new BudgetedMyers(comparator);
+        if (algorithm == Algorithm.MYERS) {
+            return myers;
+        }
+        HistogramDiff histogram = new HistogramDiff();
+        histogram.setFallbackAlgorithm(myers);
+        return histogram;
+    }
+
+    private EditList replaceAll(Lines oldLines, Lines newLines) {
+        EditList edits = new EditList();
+        if (oldLines.size() > 0 || newLines.size() > 0) {
+            edits.add(new Edit(0, oldLines.size(), 0, newLines.size()));
+        }
+        return edits;
+    }
+
+    /**
+     * Group edits into hunks, merging edits whose context would overlap
+     */
+    private FileDiff toHunks(EditList edits, Lines oldLines, Lines newLines) {
+        FileDiff diff = new FileDiff();
+        int i = 0;
+        while (i < edits.size()) {
+            int last = i;
+            while (last + 1 < edits.size()
+                    && edits.get(last + 1).getBeginA() - edits.get(last).getEndA() <= 2 * contextLines) {
+                last++;
+            }
+
+            Edit first = edits.get(i);
+            int oldStart = Math.max(0, first.getBeginA() - contextLines);
+            int newStart = Math.max(0, first.getBeginB() - contextLines);
+            int oldEnd = Math.min(oldLines.size(), edits.get(last).getEndA() + contextLines);
+            int newEnd = Math.min(newLines.size(), edits.get(last).getEndB() + contextLines);
+
+            FileDiff.Hunk hunk = new FileDiff.Hunk();
+            int oldPos = oldStart;
+            for (int e = i; e <= last; e++) {
+                Edit edit = edits.get(e);
+                while (oldPos < edit.getBeginA()) {
+                    hunk.getLines().add("  " + oldLines.get(oldPos++));
+                }
+                for (int line = edit.getBeginA(); line < edit.getEndA(); line++) {
+                    hunk.getLines().add("- " + oldLines.get(line));
+                }
+                for (int line = edit.getBeginB(); line < edit.getEndB(); line++) {
+                    hunk.getLines().add("+ " + newLines.get(line));
+                }
+                diff.setDeletions(diff.getDeletions() + edit.getLengthA());
+                diff.setAdditions(diff.getAdditions() + edit.getLengthB());
+                oldPos = edit.getEndA();
+            }
+            while (oldPos < oldEnd) {
+                hunk.getLines().add("  " + oldLines.get(oldPos++));
+            }
+
+            // An empty range starts at the line before it, as in unified diffs
+            hunk.setOldLines(oldEnd - oldStart);
+            hunk.setNewLines(newEnd - newStart);
+            hunk.setOldStart(hunk.getOldLines() == 0 ? oldStart : oldStart + 1);
+            hunk.setNewStart(hunk.getNewLines() == 0 ? newStart : newStart + 1);
+            diff.getHunks().add(hunk);
+            i = last + 1;
+        }
+        return diff;
+    }
+
+    /**
+     * Lines of a file without their line terminators, so a missing final newline is not a change
+     */
+    private static final class Lines extends Sequence {
+        private final String[] lines;
+
+        Lines(String content) {
+            if (content == null || content.isEmpty()) {
+                lines = new String[0];
+            } else {
+                String body = content.endsWith("\n") ? content.substring(0, content.length() - 1) : content;
+                lines = body.split("\n", -1);
+            }
+        }
+
+        String get(int index) {
+            return lines[index];
+        }
+
+        @Override
+        public int size() {
+            return lines.length;
+        }
+    }
+
+    /**
+     * Compares lines exactly and aborts the diff once the deadline has passed
+     */
+    private static final class LineComparator extends SequenceComparator<Lines> {
+        private final long deadline;
+        private int comparisons;
+
+        LineComparator(long deadline) {
+            this.deadline = deadline;
+        }
+
+        void checkDeadline() {
+            if ((++comparisons & DEADLINE_CHECK_MASK) == 0 && System.nanoTime() > deadline) {
+                throw new BudgetExceededException();
+            }
+        }
+
+        @Override
+        public boolean equals(Lines a, int ai, Lines b, int bi) {
+            checkDeadline();
+            String x = a.lines[ai];
+            String y = b.lines[bi];
+            // Strings cache their hash, which rejects most different lines without comparing characters
+            return x.hashCode() == y.hashCode() && x.equals(y);
+        }
+
+        @Override
+        public int hash(Lines seq, int ptr) {
+            checkDeadline();
+            return seq.lines[ptr].hashCode();
+        }
+    }
+
+    /**
+     * Myers diff that checks the deadline on every step. JGit's Myers compares precomputed line hashes
+     * and only asks the comparator about lines whose hashes match, so on completely different inputs it
+     * would never reach the deadline check; with a constant hash every comparison goes through it.
+     */
+    private static final class BudgetedMyers extends DiffAlgorithm {
+        private final LineComparator budget;
+
+        BudgetedMyers(LineComparator budget) {
+            this.budget = budget;
+        }
+
+        @Override
+        public <S extends Sequence> EditList diffNonCommon(SequenceComparator<? super S> cmp, S a, S b) {
+            return MyersDiff.INSTANCE.diffNonCommon(new DeadlineComparator<S>(cmp, budget), a, b);
+        }
+    }
+
+    private static final class DeadlineComparator<S extends Sequence> extends SequenceComparator<S> {
+        private final SequenceComparator<? super S> cmp;
+        private final LineComparator budget;
+
+        DeadlineComparator(SequenceComparator<? super S> cmp, LineComparator budget) {
+            this.cmp = cmp;
+            this.budget = budget;
+        }
+
+        @Override
+        public boolean equals(S a, int ai, S b, int bi) {
+            budget.checkDeadline();
+            return cmp.equals(a, ai, b, bi);
+        }
+
+        @Override
+        public int hash(S seq, int ptr) {
+            return 0;
+        }
+    }
+
+    private record DiffKey(String oldHash, String newHash, Algorithm algorithm, int contextLines) {}
+
+    private static final class BudgetExceededException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        BudgetExceededException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.codeshare.platform.service;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.codeshare.platform.dto.FileLockEvent;
+
+/**
+ * Server-sent event channels per project for file lock changes,
+ * so editors subscribe once instead of polling lock-info for every open file.
+ */
+@Service
+public class FileLockEventService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileLockEventService.class);
+    private static final String EVENT_NAME = "file-lock";
+
+    // Open event streams per project
+    private final Map<Long, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+    private final long emitterTimeoutMillis;
+
+    public FileLockEventService(@Value("${vcs.file-lock.events.timeout-ms:1800000}") long emitterTimeoutMillis) {
+        this.emitterTimeoutMillis = emitterTimeoutMillis;
+    }
+
+    /**
+     * Open an event stream for a project, starting with the current locks as "snapshot" event.
+     * The emitter is registered before the snapshot is read, and events are only sent to it after
+     * the snapshot, so no change is lost in between; clients de-duplicate events by file id.
+     * Clients reconnect when the stream times out and get a fresh snapshot.
+     */
+    public SseEmitter subscribe(Long projectId, Supplier<List<FileLockEvent>> currentLocks) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+        emitter.onCompletion(() -> unsubscribe(projectId, emitter));
+        emitter.onTimeout(() -> unsubscribe(projectId, emitter));
+        emitter.onError(e -> unsubscribe(projectId, emitter));
+
+        synchronized (emitter) {
+            subscribers.compute(projectId, (id, emitters) -> {
+                List<SseEmitter> result = emitters == null ? new CopyOnWriteArrayList<>() : emitters;
+                result.add(emitter);
+                return result;
+            });
+            try {
+                emitter.send(SseEmitter.event().name("snapshot").data(currentLocks.get()));
+            } catch (IOException e) {
+                unsubscribe(projectId, emitter);
+                emitter.completeWithError(e);
+            }
+        }
+        return emitter;
+    }
+
+    /**
+     * Push an event to every subscriber of its project; subscribers that cannot be reached are dropped
+     */
+    public void publish(FileLockEvent event) {
+        List<SseEmitter> emitters = subscribers.get(event.getProjectId());
+        if (emitters == null) {
+            return;
+        }
+        for (SseEmitter emitter : emitters) {
+            // Waits for a subscriber that is still being sent its snapshot
+            try {
+                synchronized (emitter) {
+                    emitter.send(SseEmitter.event().name(EVENT_NAME).data(event));
+                }
+            } catch (IOException | IllegalStateException e) {
+                logger.debug("Dropping file lock subscriber of project {}: {}", event.getProjectId(), e.getMessage());
+                unsubscribe(event.getProjectId(), emitter);
+            }
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.values().stream().mapToInt(List::size).sum();
+    }
+
+    private void unsubscribe(Long projectId, SseEmitter emitter) {
+        subscribers.computeIfPresent(projectId, (id, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+}
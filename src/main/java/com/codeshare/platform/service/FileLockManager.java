@@ -1,115 +1,172 @@
 package com.codeshare.platform.service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.codeshare.platform.dto.FileLockEvent;
 import com.codeshare.platform.model.File;
+import com.codeshare.platform.model.FileLease;
 import com.codeshare.platform.model.User;
 
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Lease-based file locks. A lock is a lease that expires unless the holder renews it,
+ * so a client that disappears never keeps a file locked for longer than one lease.
+ */
 @Service
 public class FileLockManager {
-    
-    // A record to store lock information
-    private record FileLockInfo(Long userId, String username, LocalDateTime lockTime) {}
-    
-    // Map to store file locks: fileId -> lock information
-    private final Map<Long, FileLockInfo> fileLocks = new ConcurrentHashMap<>();
-    
-    // Lock timeout in minutes
-    private static final int LOCK_TIMEOUT_MINUTES = 30;
-    
+
+    private static final Logger logger = LoggerFactory.getLogger(FileLockManager.class);
+
+    private final FileLockStore fileLockStore;
+    private final FileLockEventService fileLockEventService;
+    private final long leaseSeconds;
+
+    // Removes expired leases in the background; reads also treat expired leases as free
+    private final ScheduledExecutorService sweeper;
+
+    public FileLockManager(FileLockStore fileLockStore,
+                           FileLockEventService fileLockEventService,
+                           @Value("${vcs.file-lock.lease-seconds:1800}") long leaseSeconds,
+                           @Value("${vcs.file-lock.sweep-interval-seconds:30}") long sweepIntervalSeconds) {
+        this.fileLockStore = fileLockStore;
+        this.fileLockEventService = fileLockEventService;
+        this.leaseSeconds = leaseSeconds;
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "file-lease-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::purgeExpiredLeases, sweepIntervalSeconds, sweepIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+
     /**
-     * Acquire a lock on a file for a user
+     * Acquire a lock on a file for a user, or refresh the lease if the user already holds it
      * @return true if lock was acquired, false otherwise
      */
     public boolean acquireLock(File file, User user) {
-        Long fileId = file.getId();
-        FileLockInfo currentLock = fileLocks.get(fileId);
-        
-        // If file is not locked or lock has expired
-        if (currentLock == null || isLockExpired(currentLock)) {
-            fileLocks.put(fileId, new FileLockInfo(user.getId(), user.getUsername(), LocalDateTime.now()));
-            return true;
+        LocalDateTime now = LocalDateTime.now();
+        FileLease lease = new FileLease(file.getId(), file.getProject().getId(), user.getId(), user.getUsername(),
+                now, now.plusSeconds(leaseSeconds));
+        if (!fileLockStore.tryAcquire(lease)) {
+            return false;
         }
-        
-        // If current user already has the lock
-        if (currentLock.userId().equals(user.getId())) {
-            // Refresh the lock time
-            fileLocks.put(fileId, new FileLockInfo(user.getId(), user.getUsername(), LocalDateTime.now()));
-            return true;
+        fileLockEventService.publish(toEvent(FileLockEvent.Type.ACQUIRED, lease));
+        return true;
+    }
+
+    /**
+     * Extend the lease of a lock the user holds
+     * @return false if the user does not hold the lock, e.g. because the lease already expired
+     */
+    public boolean renewLock(File file, User user) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plusSeconds(leaseSeconds);
+        if (!fileLockStore.renew(file.getId(), user.getId(), now, expiresAt)) {
+            return false;
         }
-        
-        // File is locked by another user
-        return false;
+        fileLockEventService.publish(new FileLockEvent(FileLockEvent.Type.RENEWED, file.getId(),
+                file.getProject().getId(), user.getUsername(), expiresAt));
+        return true;
     }
-    
+
     /**
      * Release a lock on a file
      * @return true if lock was released, false if user didn't own the lock
      */
     public boolean releaseLock(File file, User user) {
-        Long fileId = file.getId();
-        FileLockInfo currentLock = fileLocks.get(fileId);
-        
-        // If file is not locked
-        if (currentLock == null) {
+        if (fileLockStore.release(file.getId(), user.getId())) {
+            fileLockEventService.publish(new FileLockEvent(FileLockEvent.Type.RELEASED, file.getId(),
+                    file.getProject().getId(), user.getUsername(), null));
             return true;
         }
-        
-        // Check if current user owns the lock
-        if (currentLock.userId().equals(user.getId())) {
-            fileLocks.remove(fileId);
-            return true;
-        }
-        
-        // File is locked by another user
-        return false;
+
+        // Releasing a file that is not locked is not an error
+        return !isLockedByOtherUser(file, user);
     }
-    
+
     /**
      * Check if a file is locked by another user
      */
     public boolean isLockedByOtherUser(File file, User user) {
-        Long fileId = file.getId();
-        FileLockInfo currentLock = fileLocks.get(fileId);
-        
-        // If file is not locked or lock has expired
-        if (currentLock == null || isLockExpired(currentLock)) {
-            return false;
-        }
-        
-        // Check if current user owns the lock
-        return !currentLock.userId().equals(user.getId());
+        return activeLease(file)
+                .map(lease -> !lease.getUserId().equals(user.getId()))
+                .orElse(false);
     }
-    
+
     /**
      * Get lock information for a file
      */
     public Map<String, Object> getLockInfo(File file) {
-        Long fileId = file.getId();
-        FileLockInfo lock = fileLocks.get(fileId);
-        
-        Map<String, Object> info = new ConcurrentHashMap<>();
-        if (lock == null || isLockExpired(lock)) {
+        Optional<FileLease> lease = activeLease(file);
+
+        Map<String, Object> info = new LinkedHashMap<>();
+        if (lease.isEmpty()) {
             info.put("locked", false);
             return info;
         }
-        
+
         info.put("locked", true);
-        info.put("username", lock.username());
-        info.put("lockTime", lock.lockTime());
-        info.put("expiresAt", lock.lockTime().plusMinutes(LOCK_TIMEOUT_MINUTES));
-        
+        info.put("username", lease.get().getUsername());
+        info.put("lockTime", lease.get().getAcquiredAt());
+        info.put("expiresAt", lease.get().getExpiresAt());
+
         return info;
     }
-    
+
     /**
-     * Check if a lock has expired
+     * Current locks on the files of a project, as the initial state for lock event subscribers
      */
-    private boolean isLockExpired(FileLockInfo lock) {
-        return lock.lockTime().plusMinutes(LOCK_TIMEOUT_MINUTES).isBefore(LocalDateTime.now());
+    public List<FileLockEvent> getProjectLocks(Long projectId) {
+        LocalDateTime now = LocalDateTime.now();
+        List<FileLockEvent> locks = new ArrayList<>();
+        for (FileLease lease : fileLockStore.findByProject(projectId)) {
+            if (!lease.isExpired(now)) {
+                locks.add(toEvent(FileLockEvent.Type.ACQUIRED, lease));
+            }
+        }
+        return locks;
+    }
+
+    private FileLockEvent toEvent(FileLockEvent.Type type, FileLease lease) {
+        return new FileLockEvent(type, lease.getFileId(), lease.getProjectId(), lease.getUsername(), lease.getExpiresAt());
+    }
+
+    private Optional<FileLease> activeLease(File file) {
+        LocalDateTime now = LocalDateTime.now();
+        return fileLockStore.find(file.getId()).filter(lease -> !lease.isExpired(now));
+    }
+
+    private void purgeExpiredLeases() {
+        try {
+            List<FileLease> purged = fileLockStore.purgeExpired(LocalDateTime.now());
+            for (FileLease lease : purged) {
+                fileLockEventService.publish(toEvent(FileLockEvent.Type.EXPIRED, lease));
+            }
+            if (!purged.isEmpty()) {
+                logger.debug("Purged {} expired file leases", purged.size());
+            }
+        } catch (RuntimeException e) {
+            // Keep the sweeper scheduled; the next run will try again
+            logger.warn("Failed to purge expired file leases: {}", e.getMessage());
+        }
     }
-}
\ No newline at end of file
+}
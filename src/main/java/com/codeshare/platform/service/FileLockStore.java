@@ -0,0 +1,48 @@
+package com.codeshare.platform.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import com.codeshare.platform.model.FileLease;
+
+/**
+ * Storage for file lock leases used by {@link FileLockManager}.
+ * Every operation is atomic per file; the store is selected with vcs.file-lock.store.
+ */
+public interface FileLockStore {
+
+    /**
+     * Store the lease unless another user holds an unexpired lease on the file
+     * @return true if the lease is now held by lease.userId
+     */
+    boolean tryAcquire(FileLease lease);
+
+    /**
+     * Extend an unexpired lease held by the user
+     * @return false if the user does not hold the lease
+     */
+    boolean renew(Long fileId, Long userId, LocalDateTime now, LocalDateTime expiresAt);
+
+    /**
+     * Remove the lease if the user holds it
+     * @return false if the user did not hold a lease on the file
+     */
+    boolean release(Long fileId, Long userId);
+
+    /**
+     * Current lease on the file, which may already be expired
+     */
+    Optional<FileLease> find(Long fileId);
+
+    /**
+     * Leases on the files of a project, which may already be expired
+     */
+    List<FileLease> findByProject(Long projectId);
+
+    /**
+     * Remove leases that expired before now
+     * @return the leases removed
+     */
+    List<FileLease> purgeExpired(LocalDateTime now);
+}
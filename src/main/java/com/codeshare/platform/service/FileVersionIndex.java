@@ -0,0 +1,150 @@
+package com.codeshare.platform.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.codeshare.platform.model.Branch;
+import com.codeshare.platform.model.Commit;
+import com.codeshare.platform.model.FileVersion;
+import com.codeshare.platform.repository.BranchRepository;
+import com.codeshare.platform.repository.FileVersionRepository;
+
+/**
+ * Per-branch (path -> current blob) index, kept in step with the branch head at commit time.
+ * Lets file-at-branch lookups run as a single indexed query regardless of history depth.
+ * Writes to the index of a branch are serialized by locking the branch row, and only the
+ * current head is ever written, so late updates for an older commit are dropped.
+ */
+@Service
+public class FileVersionIndex {
+
+    private final FileVersionRepository fileVersionRepository;
+    private final BranchRepository branchRepository;
+
+    public FileVersionIndex(FileVersionRepository fileVersionRepository, BranchRepository branchRepository) {
+        this.fileVersionRepository = fileVersionRepository;
+        this.branchRepository = branchRepository;
+    }
+
+    /**
+     * Whether the index of a branch reflects the given head commit
+     */
+    public boolean isCurrent(Branch branch, Commit head) {
+        return head != null
+                && Objects.equals(branchRepository.findHeadState(branch.getId()).getIndexedCommitId(), head.getId());
+    }
+
+    /**
+     * Get the blob hash of a file on an indexed branch
+     */
+    public Optional<String> findBlobHash(Branch branch, String path) {
+        return fileVersionRepository.findByBranchAndPath(branch, path).map(FileVersion::getBlobHash);
+    }
+
+    /**
+     * Get the full path -> blob hash snapshot of an indexed branch
+     */
+    public Map<String, String> getSnapshotRefs(Branch branch) {
+        Map<String, String> snapshotRefs = new HashMap<>();
+        for (FileVersion version : fileVersionRepository.findByBranch(branch)) {
+            snapshotRefs.put(version.getPath(), version.getBlobHash());
+        }
+        return snapshotRefs;
+    }
+
+    /**
+     * Move the index of a branch to a newly appended commit.
+     * Applies only the commit's changes when the index is at its parent, otherwise rebuilds from the snapshot.
+     */
+    @Transactional
+    public void update(Branch branch, Commit commit, Map<String, String> changedRefs, Map<String, String> snapshotRefs) {
+        BranchRepository.HeadState state = branchRepository.lockHeadState(branch.getId());
+        if (!isHead(state, commit)) {
+            return;
+        }
+
+        Long parentId = commit.getParentCommit() == null ? null : commit.getParentCommit().getId();
+        Long indexedCommitId = state.getIndexedCommitId();
+        if (indexedCommitId == null || !Objects.equals(indexedCommitId, parentId)) {
+            replace(branch, commit, snapshotRefs);
+            return;
+        }
+
+        upsert(branch, commit, changedRefs);
+        markIndexed(branch, commit);
+    }
+
+    /**
+     * Replace the index of a branch with the given head snapshot
+     */
+    @Transactional
+    public void rebuild(Branch branch, Commit head, Map<String, String> snapshotRefs) {
+        BranchRepository.HeadState state = branchRepository.lockHeadState(branch.getId());
+        if (isHead(state, head) && !Objects.equals(state.getIndexedCommitId(), head.getId())) {
+            replace(branch, head, snapshotRefs);
+        }
+    }
+
+    /**
+     * Whether the commit is the head of the branch; branches whose head predates head tracking accept any commit
+     */
+    private boolean isHead(BranchRepository.HeadState state, Commit commit) {
+        return state.getHeadCommitId() == null || state.getHeadCommitId().equals(commit.getId());
+    }
+
+    private void replace(Branch branch, Commit head, Map<String, String> snapshotRefs) {
+        fileVersionRepository.deleteByBranch(branch);
+
+        List<FileVersion> versions = new ArrayList<>();
+        for (Map.Entry<String, String> entry : snapshotRefs.entrySet()) {
+            versions.add(newVersion(branch, entry.getKey(), entry.getValue(), head.getId()));
+        }
+        fileVersionRepository.saveAll(versions);
+        markIndexed(branch, head);
+    }
+
+    private void upsert(Branch branch, Commit commit, Map<String, String> changedRefs) {
+        if (changedRefs.isEmpty()) {
+            return;
+        }
+
+        Map<String, FileVersion> existing = new HashMap<>();
+        for (FileVersion version : fileVersionRepository.findByBranchAndPathIn(branch, changedRefs.keySet())) {
+            existing.put(version.getPath(), version);
+        }
+
+        List<FileVersion> versions = new ArrayList<>();
+        for (Map.Entry<String, String> entry : changedRefs.entrySet()) {
+            FileVersion version = existing.get(entry.getKey());
+            if (version == null) {
+                version = newVersion(branch, entry.getKey(), entry.getValue(), commit.getId());
+            } else {
+                version.setBlobHash(entry.getValue());
+                version.setCommitId(commit.getId());
+            }
+            versions.add(version);
+        }
+        fileVersionRepository.saveAll(versions);
+    }
+
+    private void markIndexed(Branch branch, Commit commit) {
+        branchRepository.updateIndexedCommitId(branch.getId(), commit.getId());
+        branch.setIndexedCommitId(commit.getId());
+    }
+
+    private FileVersion newVersion(Branch branch, String path, String blobHash, Long commitId) {
+        FileVersion version = new FileVersion();
+        version.setBranch(branch);
+        version.setPath(path);
+        version.setBlobHash(blobHash);
+        version.setCommitId(commitId);
+        return version;
+    }
+}
@@ -0,0 +1,259 @@
+package com.codeshare.platform.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TimeZone;
+
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheBuilder;
+import org.eclipse.jgit.dircache.DirCacheEditor;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.codeshare.platform.model.Branch;
+import com.codeshare.platform.model.Commit;
+import com.codeshare.platform.model.GitCommitMapping;
+import com.codeshare.platform.repository.GitCommitMappingRepository;
+
+/**
+ * Mirrors platform branches into the bare Git repository of their project, see {@link GitRepositoryCache}.
+ * Blobs, trees and commits are written directly with an ObjectInserter, without a working tree,
+ * and each exported branch costs a single ref update.
+ * Exported commits are recorded in git_commit_mappings, so each export only writes new commits.
+ * Commits are built only from platform data (including the author time), so exporting the same
+ * history twice produces the same object ids.
+ */
+@Service
+public class GitMirrorService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GitMirrorService.class);
+
+    private final CommitPayloadService commitPayloadService;
+    private final BlobStore blobStore;
+    private final BranchHeadService branchHeadService;
+    private final GitCommitMappingRepository gitCommitMappingRepository;
+
+    public GitMirrorService(CommitPayloadService commitPayloadService,
+                            BlobStore blobStore,
+                            BranchHeadService branchHeadService,
+                            GitCommitMappingRepository gitCommitMappingRepository) {
+        this.commitPayloadService = commitPayloadService;
+        this.blobStore = blobStore;
+        this.branchHeadService = branchHeadService;
+        this.gitCommitMappingRepository = gitCommitMappingRepository;
+    }
+
+    /**
+     * Bring the mirror ref of a branch up to its platform head.
+     * Only commits without a mapping are written, on top of the tree of the newest mapped commit,
+     * so the cost is proportional to the number of new commits.
+     * @return the Git commit id of the branch head, or empty for a branch without commits
+     */
+    @Transactional
+    public Optional<ObjectId> exportBranch(Repository repository, Branch branch) throws IOException {
+        Optional<Commit> head = branchHeadService.getHeadCommit(branch);
+        if (head.isEmpty()) {
+            return Optional.empty();
+        }
+
+        // Walk back from the head to the newest commit that is already in the mirror
+        Deque<Commit> pending = new ArrayDeque<>();
+        ObjectId parentId = null;
+        Commit current = head.get();
+        while (current != null && parentId == null) {
+            parentId = mappedObjectId(repository, current.getId());
+            if (parentId == null) {
+                pending.push(current);
+                current = current.getParentCommit();
+            }
+        }
+
+        ObjectId commitId = parentId;
+        if (!pending.isEmpty()) {
+            Map<Long, Map<String, String>> changesByCommit = commitPayloadService.readBlobRefs(pending);
+            Map<Long, ObjectId> exported = new LinkedHashMap<>();
+            try (ObjectInserter inserter = repository.newObjectInserter();
+                 ObjectReader reader = repository.newObjectReader();
+                 RevWalk walk = new RevWalk(reader)) {
+                DirCache index = DirCache.newInCore();
+                if (parentId != null) {
+                    DirCacheBuilder builder = index.builder();
+                    builder.addTree(new byte[0], DirCacheEntry.STAGE_0, reader, walk.parseCommit(parentId).getTree());
+                    builder.finish();
+                }
+
+                Map<String, ObjectId> gitBlobByHash = new HashMap<>();
+                while (!pending.isEmpty()) {
+                    Commit commit = pending.pop();
+                    Map<String, String> changes = changesByCommit.get(commit.getId());
+                    insertBlobs(inserter, changes.values(), gitBlobByHash);
+                    applyChanges(index, changes, gitBlobByHash);
+                    ObjectId mergeParentId = commit.getMergeParentCommit() == null
+                            ? null : mappedObjectId(repository, commit.getMergeParentCommit().getId());
+                    commitId = writeCommit(inserter, commit, index.writeTree(inserter), commitId, mergeParentId);
+                    exported.put(commit.getId(), commitId);
+                }
+                inserter.flush();
+            }
+
+            // Mappings are recorded only once the objects they point to are flushed
+            Long projectId = branch.getProject().getId();
+            exported.forEach((platformId, gitId) ->
+                    gitCommitMappingRepository.insertIfAbsent(platformId, projectId, gitId.name()));
+        }
+
+        updateRef(repository, branch, commitId);
+        return Optional.of(commitId);
+    }
+
+    /**
+     * Git commit a platform commit was exported to, if it is still in the repository
+     */
+    private ObjectId mappedObjectId(Repository repository, Long commitId) throws IOException {
+        Optional<GitCommitMapping> mapping = gitCommitMappingRepository.findById(commitId);
+        if (mapping.isEmpty()) {
+            return null;
+        }
+        ObjectId objectId = ObjectId.fromString(mapping.get().getObjectId());
+        // A mirror that was deleted or recreated is simply exported again
+        return repository.getObjectDatabase().has(objectId) ? objectId : null;
+    }
+
+    /**
+     * Insert the platform blobs that are not in the Git object database yet, remembering their Git ids
+     */
+    private void insertBlobs(ObjectInserter inserter, Iterable<String> hashes, Map<String, ObjectId> gitBlobByHash) throws IOException {
+        List<String> missing = new ArrayList<>();
+        for (String hash : hashes) {
+            if (hash != null && !gitBlobByHash.containsKey(hash)) {
+                missing.add(hash);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        Map<String, String> contentByHash = blobStore.getAll(missing);
+        for (String hash : missing) {
+            String content = contentByHash.get(hash);
+            if (content == null) {
+                throw new IllegalStateException("Blob not found: " + hash);
+            }
+            gitBlobByHash.put(hash, inserter.insert(Constants.OBJ_BLOB, content.getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    /**
+     * Apply the file changes of one commit to the index; a null blob hash deletes the file
+     */
+    private void applyChanges(DirCache index, Map<String, String> changes, Map<String, ObjectId> gitBlobByHash) {
+        DirCacheEditor editor = index.editor();
+        for (Map.Entry<String, String> entry : changes.entrySet()) {
+            String path = stripLeadingSlashes(entry.getKey());
+            if (!isValidPath(path)) {
+                logger.warn("Skipping path that is not valid in Git: {}", entry.getKey());
+                continue;
+            }
+            if (entry.getValue() == null) {
+                editor.add(new DirCacheEditor.DeletePath(path));
+                continue;
+            }
+            ObjectId blobId = gitBlobByHash.get(entry.getValue());
+            editor.add(new DirCacheEditor.PathEdit(path) {
+                @Override
+                public void apply(DirCacheEntry dirCacheEntry) {
+                    dirCacheEntry.setFileMode(FileMode.REGULAR_FILE);
+                    dirCacheEntry.setObjectId(blobId);
+                }
+            });
+        }
+        editor.finish();
+    }
+
+    /**
+     * Write a commit; the merged-in source head becomes a second parent when it has been exported already,
+     * so later merge checks find the merge base
+     */
+    private ObjectId writeCommit(ObjectInserter inserter, Commit commit, ObjectId treeId, ObjectId parentId,
+                                 ObjectId mergeParentId) throws IOException {
+        long when = commit.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        String email = commit.getAuthor().getEmail() == null ? "" : commit.getAuthor().getEmail();
+        PersonIdent ident = new PersonIdent(commit.getAuthor().getUsername(), email, when, TimeZone.getDefault().getOffset(when) / 60000);
+
+        CommitBuilder builder = new CommitBuilder();
+        builder.setTreeId(treeId);
+        if (parentId != null && mergeParentId != null) {
+            builder.setParentIds(parentId, mergeParentId);
+        } else if (parentId != null) {
+            builder.setParentId(parentId);
+        }
+        builder.setAuthor(ident);
+        builder.setCommitter(ident);
+        builder.setMessage(commit.getMessage());
+        return inserter.insert(builder);
+    }
+
+    private void updateRef(Repository repository, Branch branch, ObjectId commitId) throws IOException {
+        String refName = Constants.R_HEADS + branch.getName();
+        Ref current = repository.exactRef(refName);
+        if (current != null && commitId.equals(current.getObjectId())) {
+            return;
+        }
+
+        RefUpdate update = repository.updateRef(refName);
+        update.setExpectedOldObjectId(current == null ? ObjectId.zeroId() : current.getObjectId());
+        update.setNewObjectId(commitId);
+        update.setForceUpdate(true);
+        update.setRefLogMessage("mirror platform branch " + branch.getId(), false);
+        RefUpdate.Result result = update.update();
+        switch (result) {
+            case NEW, FORCED, FAST_FORWARD, NO_CHANGE -> {
+            }
+            case LOCK_FAILURE -> {
+                // A concurrent export of the same branch won; the mirror converges on the next export
+                logger.debug("Mirror ref {} was updated concurrently", refName);
+            }
+            default -> throw new IOException("Failed to update mirror ref " + refName + ": " + result);
+        }
+    }
+
+    private boolean isValidPath(String path) {
+        try {
+            new DirCacheEntry(path);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private String stripLeadingSlashes(String path) {
+        int start = 0;
+        while (start < path.length() && path.charAt(start) == '/') {
+            start++;
+        }
+        return path.substring(start);
+    }
+}
@@ -0,0 +1,207 @@
+package com.codeshare.platform.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Keeps the bare mirror repository of each project open between uses, so JGit's pack and object
+ * caches survive across calls and file handles are not leaked.
+ *
+ * Handles are reference counted; a repository is only closed when nobody holds it, either because it
+ * has been idle for too long or because more than the allowed number of repositories are open.
+ */
+@Service
+public class GitRepositoryCache {
+
+    private final String basePath;
+    private final int maxOpen;
+    private final long idleMillis;
+
+    // Striped guards so that only one thread opens or creates the repository of a project at a time
+    private final Object[] openLocks = new Object[64];
+
+    // Open repositories by project id, least recently used first
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    // Closes repositories that have been idle for longer than idleMillis
+    private final ScheduledExecutorService sweeper;
+
+    public GitRepositoryCache(@Value("${git.repositories.base-path:/tmp/git-repositories}") String basePath,
+                              @Value("${vcs.git.repository-cache.max-open:64}") int maxOpen,
+                              @Value("${vcs.git.repository-cache.idle-seconds:300}") long idleSeconds) {
+        this.basePath = basePath;
+        this.maxOpen = maxOpen;
+        this.idleMillis = TimeUnit.SECONDS.toMillis(idleSeconds);
+        for (int i = 0; i < openLocks.length; i++) {
+            openLocks[i] = new Object();
+        }
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "git-repository-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long sweepSeconds = Math.max(1, idleSeconds / 2);
+        sweeper.scheduleWithFixedDelay(this::closeIdle, sweepSeconds, sweepSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * A repository in use; closing the handle returns it to the cache
+     */
+    public final class Handle implements AutoCloseable {
+        private final Entry entry;
+        private boolean closed;
+
+        private Handle(Entry entry) {
+            this.entry = entry;
+        }
+
+        public Repository getRepository() {
+            return entry.repository;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                release(entry);
+            }
+        }
+    }
+
+    /**
+     * Get the bare mirror repository of a project, opening or creating it if needed
+     */
+    public Handle acquire(Long projectId) throws IOException {
+        Handle handle = acquireOpen(projectId);
+        if (handle != null) {
+            return handle;
+        }
+
+        // Open outside the cache lock, but only once per project: a second thread waits here
+        // and then finds the repository the first one opened
+        synchronized (openLocks[Math.floorMod(projectId.hashCode(), openLocks.length)]) {
+            handle = acquireOpen(projectId);
+            if (handle != null) {
+                return handle;
+            }
+            Repository repository = open(projectId);
+            synchronized (this) {
+                misses++;
+                Entry entry = new Entry(repository);
+                entries.put(projectId, entry);
+                // Taken before evicting, so the new entry is never the one closed
+                entry.refCount++;
+                evictOverflow();
+                return new Handle(entry);
+            }
+        }
+    }
+
+    /**
+     * Handle on an already open repository, or null if it is not open
+     */
+    private synchronized Handle acquireOpen(Long projectId) {
+        Entry entry = entries.get(projectId);
+        if (entry == null) {
+            return null;
+        }
+        hits++;
+        entry.refCount++;
+        return new Handle(entry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+        synchronized (this) {
+            entries.values().forEach(entry -> entry.repository.close());
+            entries.clear();
+        }
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        long requests = hits + misses;
+        long inUse = entries.values().stream().filter(entry -> entry.refCount > 0).count();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("openRepositories", entries.size());
+        stats.put("inUse", inUse);
+        stats.put("maxOpen", maxOpen);
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRatio", requests == 0 ? 0.0 : (double) hits / requests);
+        stats.put("evictions", evictions);
+        return stats;
+    }
+
+    private Repository open(Long projectId) throws IOException {
+        File gitDir = new File(basePath, projectId + "-mirror.git");
+        Repository repository = new FileRepositoryBuilder().setGitDir(gitDir).setBare().build();
+        if (!repository.getObjectDatabase().exists()) {
+            repository.create(true);
+        }
+        return repository;
+    }
+
+    private synchronized void release(Entry entry) {
+        entry.refCount--;
+        entry.lastReleased = System.currentTimeMillis();
+        evictOverflow();
+    }
+
+    /**
+     * Close least recently used idle repositories while more than maxOpen are open.
+     * Repositories in use are never closed, so the cap can be exceeded while they are held.
+     */
+    private void evictOverflow() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > maxOpen && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.refCount == 0) {
+                iterator.remove();
+                entry.repository.close();
+                evictions++;
+            }
+        }
+    }
+
+    private synchronized void closeIdle() {
+        long cutoff = System.currentTimeMillis() - idleMillis;
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.refCount == 0 && entry.lastReleased < cutoff) {
+                iterator.remove();
+                entry.repository.close();
+                evictions++;
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final Repository repository;
+        private int refCount;
+        private long lastReleased = System.currentTimeMillis();
+
+        private Entry(Repository repository) {
+            this.repository = repository;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.codeshare.platform.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.merge.MergeStrategy;
+import org.eclipse.jgit.merge.Merger;
+import org.eclipse.jgit.merge.ResolveMerger;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+
+import org.springframework.stereotype.Service;
+
+import com.codeshare.platform.dto.MergeCheckResult;
+import com.codeshare.platform.model.Branch;
+
+/**
+ * Trial merges of platform branches, run in core against the bare Git mirror of the project.
+ * Nothing is checked out and no ref is moved, so checks for different pull requests can run at the same time.
+ */
+@Service
+public class MergeCheckService {
+
+    private final GitMirrorService gitMirrorService;
+    private final GitRepositoryCache gitRepositoryCache;
+
+    public MergeCheckService(GitMirrorService gitMirrorService, GitRepositoryCache gitRepositoryCache) {
+        this.gitMirrorService = gitMirrorService;
+        this.gitRepositoryCache = gitRepositoryCache;
+    }
+
+    /**
+     * Check whether the source branch merges cleanly into the target branch
+     */
+    public MergeCheckResult check(Branch sourceBranch, Branch targetBranch) throws IOException {
+        try (GitRepositoryCache.Handle handle = gitRepositoryCache.acquire(sourceBranch.getProject().getId())) {
+            Repository repository = handle.getRepository();
+            Optional<ObjectId> source = gitMirrorService.exportBranch(repository, sourceBranch);
+            if (source.isEmpty()) {
+                return MergeCheckResult.notMergeable("Source branch has no commits to merge");
+            }
+            Optional<ObjectId> target = gitMirrorService.exportBranch(repository, targetBranch);
+            if (target.isEmpty()) {
+                return MergeCheckResult.clean("Target branch has no commits");
+            }
+            if (!shareHistory(repository, target.get(), source.get())) {
+                // Same policy as VersionControlService.mergeBranches: the source versions win, which never conflicts
+                return MergeCheckResult.clean("Branches share no history; the source versions will be taken");
+            }
+            return merge(repository, target.get(), source.get());
+        }
+    }
+
+    /**
+     * Whether two commits have a merge base. Platform branches start without commits, so the mirror
+     * branches of a first merge share no root commit.
+     */
+    private boolean shareHistory(Repository repository, ObjectId target, ObjectId source) throws IOException {
+        try (RevWalk walk = new RevWalk(repository)) {
+            walk.setRevFilter(RevFilter.MERGE_BASE);
+            walk.markStart(walk.parseCommit(target));
+            walk.markStart(walk.parseCommit(source));
+            return walk.next() != null;
+        }
+    }
+
+    /**
+     * Merge two commits in core. Merged blobs and trees go through an inserter that is never flushed
+     * into a ref, so the only trace left in the repository is unreferenced objects.
+     */
+    private MergeCheckResult merge(Repository repository, ObjectId target, ObjectId source) throws IOException {
+        try (ObjectInserter inserter = repository.newObjectInserter()) {
+            Merger merger = MergeStrategy.RECURSIVE.newMerger(inserter, repository.getConfig());
+            if (merger.merge(target, source)) {
+                return MergeCheckResult.clean("Branches can be merged");
+            }
+
+            List<String> conflictPaths = new ArrayList<>();
+            if (merger instanceof ResolveMerger resolveMerger) {
+                conflictPaths.addAll(resolveMerger.getUnmergedPaths());
+            }
+            return MergeCheckResult.conflicts(conflictPaths);
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.codeshare.platform.service;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.codeshare.platform.dto.BranchHeadMovedEvent;
+import com.codeshare.platform.dto.MergeCheckResult;
+import com.codeshare.platform.model.Commit;
+import com.codeshare.platform.model.MergeabilityState;
+import com.codeshare.platform.model.PullRequest;
+import com.codeshare.platform.model.PullRequestStatus;
+import com.codeshare.platform.repository.PullRequestRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Computes pull request mergeability in the background.
+ * A check is queued when a pull request is opened and whenever one of its branch heads moves;
+ * the result is stored on the pull request together with the head commits it was computed for.
+ * Checks for the same pull request and head pair are coalesced into one job.
+ * The same jobs refresh the stored diff stats of the pull request for these heads.
+ */
+@Service
+public class MergeabilityService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MergeabilityService.class);
+
+    private final PullRequestRepository pullRequestRepository;
+    private final BranchHeadService branchHeadService;
+    private final MergeCheckService mergeCheckService;
+    private final CommitGraphService commitGraphService;
+    private final PullRequestDiffStatsService pullRequestDiffStatsService;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ThreadPoolExecutor executor;
+
+    // Jobs that are queued or running
+    private final Set<Job> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public MergeabilityService(PullRequestRepository pullRequestRepository,
+                               BranchHeadService branchHeadService,
+                               MergeCheckService mergeCheckService,
+                               CommitGraphService commitGraphService,
+                               PullRequestDiffStatsService pullRequestDiffStatsService,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${vcs.mergeability.threads:2}") int threads) {
+        this.pullRequestRepository = pullRequestRepository;
+        this.branchHeadService = branchHeadService;
+        this.mergeCheckService = mergeCheckService;
+        this.commitGraphService = commitGraphService;
+        this.pullRequestDiffStatsService = pullRequestDiffStatsService;
+        this.transactionTemplate = transactionTemplate;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "mergeability-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queue a mergeability check for the current heads of a pull request, unless one is already queued
+     */
+    public void enqueue(PullRequest pullRequest) {
+        Job job = new Job(pullRequest.getId(),
+                branchHeadService.getHeadCommitId(pullRequest.getSourceBranch()),
+                branchHeadService.getHeadCommitId(pullRequest.getTargetBranch()));
+        pullRequestRepository.markMergeabilityPending(job.pullRequestId(), job.sourceHeadId(), job.targetHeadId());
+
+        if (!inFlight.add(job)) {
+            coalesced.incrementAndGet();
+            return;
+        }
+        submitted.incrementAndGet();
+        try {
+            executor.execute(() -> run(job));
+        } catch (RuntimeException e) {
+            inFlight.remove(job);
+            throw e;
+        }
+    }
+
+    /**
+     * Re-check the open pull requests of a branch once the commit that moved its head is committed.
+     * Runs on the executor, since transactional work is not possible while the publishing transaction completes.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBranchHeadMoved(BranchHeadMovedEvent event) {
+        executor.execute(() -> {
+            try {
+                pullRequestRepository.findByStatusAndBranchId(PullRequestStatus.OPEN, event.getBranchId())
+                        .forEach(this::enqueue);
+            } catch (RuntimeException e) {
+                logger.warn("Failed to queue mergeability checks for branch {}: {}", event.getBranchId(), e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Whether a pull request can be merged at its current heads.
+     * Uses the stored result when it belongs to the current heads, and checks synchronously otherwise.
+     */
+    public boolean isMergeable(PullRequest pullRequest) {
+        long sourceHeadId = branchHeadService.getHeadCommitId(pullRequest.getSourceBranch());
+        long targetHeadId = branchHeadService.getHeadCommitId(pullRequest.getTargetBranch());
+        if (pullRequest.getMergeabilityState() != MergeabilityState.PENDING
+                && Long.valueOf(sourceHeadId).equals(pullRequest.getMergeabilitySourceHeadId())
+                && Long.valueOf(targetHeadId).equals(pullRequest.getMergeabilityTargetHeadId())) {
+            return pullRequest.getMergeabilityState() == MergeabilityState.MERGEABLE;
+        }
+
+        MergeCheckResult result = tryCheck(pullRequest);
+        if (result == null) {
+            // Not recorded, so the state stays PENDING and the check is retried; allow this one merge
+            return true;
+        }
+        record(new Job(pullRequest.getId(), sourceHeadId, targetHeadId), result);
+        return result.isMergeable();
+    }
+
+    /**
+     * Run a merge check now, on the calling thread.
+     * A check that fails reports the branches as mergeable, as before background checks existed.
+     */
+    public MergeCheckResult check(PullRequest pullRequest) {
+        MergeCheckResult result = tryCheck(pullRequest);
+        return result != null ? result : MergeCheckResult.clean("Mergeability could not be checked");
+    }
+
+    /**
+     * @return null if the check failed; such a result must not be recorded
+     */
+    private MergeCheckResult tryCheck(PullRequest pullRequest) {
+        try {
+            // A target head that the source already contains is a fast-forward and cannot conflict
+            Optional<Commit> sourceHead = branchHeadService.getHeadCommit(pullRequest.getSourceBranch());
+            Optional<Commit> targetHead = branchHeadService.getHeadCommit(pullRequest.getTargetBranch());
+            if (sourceHead.isPresent() && targetHead.isPresent()
+                    && commitGraphService.isAncestor(targetHead.get(), sourceHead.get())) {
+                return MergeCheckResult.clean("Branches can be fast-forwarded");
+            }
+
+            MergeCheckResult result = mergeCheckService.check(pullRequest.getSourceBranch(), pullRequest.getTargetBranch());
+            logger.debug("Merge check result for PR ID {}: {}", pullRequest.getId(), result);
+            return result;
+        } catch (Exception e) {
+            logger.error("Error checking PR mergeability using JGit: ", e);
+            failed.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Stored mergeability of a pull request. A result that belongs to older heads is reported as
+     * PENDING and a new check is queued.
+     */
+    public Map<String, Object> getStatus(PullRequest pullRequest) {
+        long sourceHeadId = branchHeadService.getHeadCommitId(pullRequest.getSourceBranch());
+        long targetHeadId = branchHeadService.getHeadCommitId(pullRequest.getTargetBranch());
+        boolean current = Long.valueOf(sourceHeadId).equals(pullRequest.getMergeabilitySourceHeadId())
+                && Long.valueOf(targetHeadId).equals(pullRequest.getMergeabilityTargetHeadId());
+
+        MergeabilityState state = current ? pullRequest.getMergeabilityState() : MergeabilityState.PENDING;
+        if (state == MergeabilityState.PENDING && pullRequest.getStatus() == PullRequestStatus.OPEN) {
+            // Also picks up checks that were lost in a restart
+            enqueue(pullRequest);
+        }
+
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("state", state);
+        status.put("sourceHeadCommitId", sourceHeadId);
+        status.put("targetHeadCommitId", targetHeadId);
+        if (state != MergeabilityState.PENDING) {
+            status.put("conflictPaths", conflictPaths(pullRequest.getMergeConflictPaths()));
+            status.put("checkedAt", pullRequest.getMergeabilityCheckedAt());
+        }
+        return status;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queued", executor.getQueue().size());
+        stats.put("running", executor.getActiveCount());
+        stats.put("submitted", submitted.get());
+        stats.put("coalesced", coalesced.get());
+        stats.put("completed", completed.get());
+        stats.put("discarded", discarded.get());
+        stats.put("failed", failed.get());
+        return stats;
+    }
+
+    private void run(Job job) {
+        try {
+            MergeCheckResult result = transactionTemplate.execute(status -> {
+                PullRequest pullRequest = pullRequestRepository.findById(job.pullRequestId()).orElse(null);
+                if (pullRequest == null || pullRequest.getStatus() != PullRequestStatus.OPEN
+                        || pullRequest.getMergeabilityState() != MergeabilityState.PENDING
+                        || !Long.valueOf(job.sourceHeadId()).equals(pullRequest.getMergeabilitySourceHeadId())
+                        || !Long.valueOf(job.targetHeadId()).equals(pullRequest.getMergeabilityTargetHeadId())) {
+                    // Already decided, or superseded by a check for newer heads
+                    return null;
+                }
+                MergeCheckResult checked = tryCheck(pullRequest);
+                if (checked == null) {
+                    // Leave the state PENDING; getStatus queues the check again
+                    throw new IllegalStateException("merge check failed");
+                }
+                return checked;
+            });
+            if (result == null) {
+                discarded.incrementAndGet();
+            } else {
+                record(job, result);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Mergeability check for PR ID {} failed: {}", job.pullRequestId(), e.getMessage());
+        }
+
+        try {
+            pullRequestDiffStatsService.refresh(job.pullRequestId(), job.sourceHeadId(), job.targetHeadId());
+        } catch (RuntimeException e) {
+            logger.warn("Diff stats for PR ID {} failed: {}", job.pullRequestId(), e.getMessage());
+        } finally {
+            inFlight.remove(job);
+        }
+    }
+
+    private void record(Job job, MergeCheckResult result) {
+        MergeabilityState state = result.isMergeable() ? MergeabilityState.MERGEABLE : MergeabilityState.CONFLICTING;
+        String conflictPaths = result.getConflictPaths() == null || result.getConflictPaths().isEmpty()
+                ? null : String.join("\n", result.getConflictPaths());
+        int updated = pullRequestRepository.recordMergeability(job.pullRequestId(), job.sourceHeadId(), job.targetHeadId(),
+                state, result.isMergeable(), conflictPaths, LocalDateTime.now());
+        if (updated == 0) {
+            discarded.incrementAndGet();
+        } else {
+            completed.incrementAndGet();
+        }
+    }
+
+    private List<String> conflictPaths(String stored) {
+        return stored == null ? List.of() : Arrays.asList(stored.split("\n"));
+    }
+
+    private record Job(Long pullRequestId, long sourceHeadId, long targetHeadId) {}
+}
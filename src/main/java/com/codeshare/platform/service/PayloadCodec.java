@@ -0,0 +1,21 @@
+package com.codeshare.platform.service;
+
+/**
+ * Compression algorithm for stored payloads.
+ * Implementations are Spring beans; {@link PayloadCodecService} picks them up by id and name.
+ */
+public interface PayloadCodec {
+    /**
+     * Id written into the payload header; must never change once payloads were written with it
+     */
+    int getId();
+
+    /**
+     * Name used to select the codec for new payloads (vcs.payload.codec)
+     */
+    String getName();
+
+    byte[] compress(byte[] data);
+
+    byte[] decompress(byte[] data);
+}
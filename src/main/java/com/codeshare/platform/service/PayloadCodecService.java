@@ -0,0 +1,134 @@
+package com.codeshare.platform.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Frames stored payloads with a small header so the codec can change without rewriting old rows.
+ *
+ * Header: magic "CSZ", format version, codec id (0 = stored uncompressed), followed by the codec output.
+ * Payloads without the magic were written before compression existed and are returned as they are.
+ */
+@Service
+public class PayloadCodecService {
+
+    private static final byte[] MAGIC = {'C', 'S', 'Z'};
+    private static final byte FORMAT_VERSION = 1;
+    private static final int HEADER_LENGTH = MAGIC.length + 2;
+    private static final int STORED = 0;
+
+    private final Map<Integer, PayloadCodec> codecsById = new HashMap<>();
+    private final PayloadCodec codec;
+    private final int minCompressBytes;
+
+    private final AtomicLong rawBytes = new AtomicLong();
+    private final AtomicLong encodedBytes = new AtomicLong();
+
+    public PayloadCodecService(List<PayloadCodec> codecs,
+                               @Value("${vcs.payload.codec:deflate}") String codecName,
+                               @Value("${vcs.payload.min-compress-bytes:64}") int minCompressBytes) {
+        PayloadCodec selected = null;
+        for (PayloadCodec candidate : codecs) {
+            if (candidate.getId() <= STORED || candidate.getId() > 255) {
+                throw new IllegalStateException("Invalid payload codec id " + candidate.getId() + " for " + candidate.getName());
+            }
+            PayloadCodec previous = codecsById.put(candidate.getId(), candidate);
+            if (previous != null) {
+                throw new IllegalStateException("Payload codecs " + previous.getName() + " and "
+                        + candidate.getName() + " share id " + candidate.getId());
+            }
+            if (candidate.getName().equalsIgnoreCase(codecName)) {
+                selected = candidate;
+            }
+        }
+        if (selected == null && !"none".equalsIgnoreCase(codecName)) {
+            throw new IllegalStateException("Unknown payload codec: " + codecName);
+        }
+
+        this.codec = selected;
+        this.minCompressBytes = minCompressBytes;
+    }
+
+    /**
+     * Compress a payload with the configured codec and add the header.
+     * Payloads that are small or do not shrink are stored uncompressed.
+     */
+    public byte[] encode(byte[] data) {
+        int codecId = STORED;
+        byte[] body = data;
+        if (codec != null && data.length >= minCompressBytes) {
+            byte[] compressed = codec.compress(data);
+            if (compressed.length < data.length) {
+                codecId = codec.getId();
+                body = compressed;
+            }
+        }
+
+        byte[] encoded = new byte[HEADER_LENGTH + body.length];
+        System.arraycopy(MAGIC, 0, encoded, 0, MAGIC.length);
+        encoded[MAGIC.length] = FORMAT_VERSION;
+        encoded[MAGIC.length + 1] = (byte) codecId;
+        System.arraycopy(body, 0, encoded, HEADER_LENGTH, body.length);
+
+        rawBytes.addAndGet(data.length);
+        encodedBytes.addAndGet(encoded.length);
+        return encoded;
+    }
+
+    /**
+     * Decode a payload written by {@link #encode}, or return a headerless legacy payload unchanged
+     */
+    public byte[] decode(byte[] encoded) {
+        if (!hasHeader(encoded)) {
+            return encoded;
+        }
+
+        int version = encoded[MAGIC.length];
+        if (version != FORMAT_VERSION) {
+            throw new IllegalStateException("Unsupported payload format version: " + version);
+        }
+
+        int codecId = encoded[MAGIC.length + 1] & 0xFF;
+        byte[] body = Arrays.copyOfRange(encoded, HEADER_LENGTH, encoded.length);
+        if (codecId == STORED) {
+            return body;
+        }
+
+        PayloadCodec payloadCodec = codecsById.get(codecId);
+        if (payloadCodec == null) {
+            throw new IllegalStateException("No payload codec registered for id " + codecId);
+        }
+        return payloadCodec.decompress(body);
+    }
+
+    public Map<String, Object> getStats() {
+        long raw = rawBytes.get();
+        long encoded = encodedBytes.get();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("codec", codec == null ? "none" : codec.getName());
+        stats.put("rawBytesWritten", raw);
+        stats.put("encodedBytesWritten", encoded);
+        stats.put("compressionRatio", encoded == 0 ? 0.0 : (double) raw / encoded);
+        return stats;
+    }
+
+    private boolean hasHeader(byte[] data) {
+        if (data.length < HEADER_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,50 @@
+package com.codeshare.platform.service;
+
+import java.util.Map;
+
+/**
+ * Backend for the project read/write locks taken through {@link ConcurrencyService}.
+ * The provider is selected with vcs.lock.provider; "memory" only serializes requests within one JVM.
+ */
+public interface ProjectLockProvider {
+
+    enum Mode { READ, WRITE }
+
+    /**
+     * A held lock; closing it releases the lock
+     */
+    interface Handle extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * Block until the lock is held.
+     * Called at most once per project and thread at a time; {@link ConcurrencyService} handles reentrancy.
+     */
+    Handle acquire(Long projectId, Mode mode);
+
+    /**
+     * Start an optimistic read without taking a lock
+     * @return a stamp to pass to {@link #validate}, or 0 if a write lock is held or optimistic reads are not supported
+     */
+    default long tryOptimisticRead(Long projectId) {
+        return 0;
+    }
+
+    /**
+     * Check that no write lock was taken on the project since the stamp was issued
+     */
+    default boolean validate(Long projectId, long stamp) {
+        return false;
+    }
+
+    String getName();
+
+    /**
+     * Provider specific statistics for the metrics endpoint
+     */
+    default Map<String, Object> getStats() {
+        return Map.of();
+    }
+}
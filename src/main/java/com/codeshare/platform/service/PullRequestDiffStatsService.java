@@ -0,0 +1,239 @@
+package com.codeshare.platform.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.codeshare.platform.dto.BranchDiffStats;
+import com.codeshare.platform.dto.ChangedFilePage;
+import com.codeshare.platform.dto.PathChange;
+import com.codeshare.platform.model.PullRequest;
+import com.codeshare.platform.model.PullRequestFileStat;
+import com.codeshare.platform.repository.PullRequestFileStatRepository;
+import com.codeshare.platform.repository.PullRequestRepository;
+
+/**
+ * Diff stats of pull requests, computed once per pair of source and target head commits and stored
+ * on the pull request, with one row per changed file. They are refreshed by the background
+ * mergeability jobs, which run whenever a branch head moves, so reading them is a plain row lookup.
+ */
+@Service
+public class PullRequestDiffStatsService {
+
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private final PullRequestRepository pullRequestRepository;
+    private final PullRequestFileStatRepository fileStatRepository;
+    private final BranchHeadService branchHeadService;
+    private final VersionControlService versionControlService;
+    private final BranchDiffService branchDiffService;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicLong computed = new AtomicLong();
+    private final AtomicLong computedOnRead = new AtomicLong();
+    private final AtomicLong upToDate = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+
+    public PullRequestDiffStatsService(PullRequestRepository pullRequestRepository,
+                                       PullRequestFileStatRepository fileStatRepository,
+                                       BranchHeadService branchHeadService,
+                                       VersionControlService versionControlService,
+                                       BranchDiffService branchDiffService,
+                                       TransactionTemplate transactionTemplate) {
+        this.pullRequestRepository = pullRequestRepository;
+        this.fileStatRepository = fileStatRepository;
+        this.branchHeadService = branchHeadService;
+        this.versionControlService = versionControlService;
+        this.branchDiffService = branchDiffService;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Diff stats of a pull request at its current heads. Stored stats are used when they belong to
+     * these heads; otherwise, e.g. before the first background job finished, they are computed now and stored.
+     */
+    public Map<String, Object> getDiffStats(PullRequest pullRequest) {
+        long sourceHeadId = branchHeadService.getHeadCommitId(pullRequest.getSourceBranch());
+        long targetHeadId = branchHeadService.getHeadCommitId(pullRequest.getTargetBranch());
+        if (isCurrent(pullRequest, sourceHeadId, targetHeadId)) {
+            return toMap(sourceHeadId, targetHeadId, pullRequest.getDiffStatsComputedAt(),
+                    fileStatRepository.findByPullRequestIdOrderByPath(pullRequest.getId()));
+        }
+
+        computedOnRead.incrementAndGet();
+        LocalDateTime computedAt = LocalDateTime.now();
+        List<PullRequestFileStat> files = compute(pullRequest);
+        store(pullRequest, sourceHeadId, targetHeadId, files, computedAt);
+        return toMap(sourceHeadId, targetHeadId, computedAt, files);
+    }
+
+    /**
+     * Compute and store the diff stats of a pull request for a pair of heads, unless they are already
+     * stored or the heads have moved on since the refresh was requested.
+     * Only the checks run in a transaction; the diff is computed without holding a connection.
+     */
+    public void refresh(Long pullRequestId, long sourceHeadId, long targetHeadId) {
+        PullRequest pullRequest = transactionTemplate.execute(status -> {
+            PullRequest found = pullRequestRepository.findWithBranchesById(pullRequestId).orElse(null);
+            if (found == null) {
+                return null;
+            }
+            if (isCurrent(found, sourceHeadId, targetHeadId)) {
+                upToDate.incrementAndGet();
+                return null;
+            }
+            if (!headsAre(found, sourceHeadId, targetHeadId)) {
+                // A job for the newer heads is queued
+                return null;
+            }
+            return found;
+        });
+        if (pullRequest != null) {
+            store(pullRequest, sourceHeadId, targetHeadId, compute(pullRequest), LocalDateTime.now());
+        }
+    }
+
+    /**
+     * Changed files with their line counts, ordered by path, starting after the cursor path
+     * @param cursor null for the first page, otherwise the nextCursor of the previous page
+     */
+    public ChangedFilePage getFilePage(PullRequest pullRequest, String cursor, int limit) {
+        ensureCurrent(pullRequest);
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        // One extra row tells whether there is a next page
+        List<PullRequestFileStat> rows = fileStatRepository.findByPullRequestIdAndPathGreaterThanOrderByPath(
+                pullRequest.getId(), cursor == null ? "" : cursor, PageRequest.of(0, pageSize + 1));
+
+        ChangedFilePage page = new ChangedFilePage();
+        for (PullRequestFileStat row : rows.subList(0, Math.min(pageSize, rows.size()))) {
+            page.getFiles().add(new BranchDiffStats.FileStats(row.getPath(), row.getAdditions(), row.getDeletions(), row.isExact()));
+        }
+        if (rows.size() > pageSize) {
+            page.setNextCursor(rows.get(pageSize - 1).getPath());
+        }
+        return page;
+    }
+
+    /**
+     * Stored stats and blob hashes of one changed file at the current heads
+     */
+    public Optional<PullRequestFileStat> getFileStat(PullRequest pullRequest, String path) {
+        ensureCurrent(pullRequest);
+        return fileStatRepository.findByPullRequestIdAndPath(pullRequest.getId(), path);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("computed", computed.get());
+        stats.put("computedOnRead", computedOnRead.get());
+        stats.put("upToDate", upToDate.get());
+        stats.put("discarded", discarded.get());
+        return stats;
+    }
+
+    private void ensureCurrent(PullRequest pullRequest) {
+        long sourceHeadId = branchHeadService.getHeadCommitId(pullRequest.getSourceBranch());
+        long targetHeadId = branchHeadService.getHeadCommitId(pullRequest.getTargetBranch());
+        if (!isCurrent(pullRequest, sourceHeadId, targetHeadId)) {
+            computedOnRead.incrementAndGet();
+            store(pullRequest, sourceHeadId, targetHeadId, compute(pullRequest), LocalDateTime.now());
+        }
+    }
+
+    private boolean isCurrent(PullRequest pullRequest, long sourceHeadId, long targetHeadId) {
+        return pullRequest.getDiffStatsComputedAt() != null
+                && Long.valueOf(sourceHeadId).equals(pullRequest.getDiffStatsSourceHeadId())
+                && Long.valueOf(targetHeadId).equals(pullRequest.getDiffStatsTargetHeadId());
+    }
+
+    /**
+     * Per-file stats of the changes the source branch makes to the target branch
+     */
+    private List<PullRequestFileStat> compute(PullRequest pullRequest) {
+        computed.incrementAndGet();
+        List<PathChange> changes = versionControlService.getChangedPaths(
+                pullRequest.getTargetBranch(), pullRequest.getSourceBranch());
+        BranchDiffStats diffStats = branchDiffService.computeStats(changes);
+
+        List<PullRequestFileStat> files = new ArrayList<>(changes.size());
+        for (int i = 0; i < changes.size(); i++) {
+            PathChange change = changes.get(i);
+            BranchDiffStats.FileStats file = diffStats.getFiles().get(i);
+            files.add(new PullRequestFileStat(null, pullRequest.getId(), change.getPath(),
+                    change.getOldBlobHash(), change.getNewBlobHash(),
+                    file.getAdditions(), file.getDeletions(), file.isExact()));
+        }
+        return files;
+    }
+
+    /**
+     * Replace the stored stats. The totals are updated first, which locks the pull request row, so
+     * concurrent writers of the same pull request replace the file rows one after the other. Stats of
+     * heads that are no longer current by then are rolled back, so they never overwrite newer ones.
+     */
+    private void store(PullRequest pullRequest, long sourceHeadId, long targetHeadId,
+                       List<PullRequestFileStat> files, LocalDateTime computedAt) {
+        int additions = 0;
+        int deletions = 0;
+        for (PullRequestFileStat file : files) {
+            additions += file.getAdditions();
+            deletions += file.getDeletions();
+        }
+        int totalAdditions = additions;
+        int totalDeletions = deletions;
+        transactionTemplate.executeWithoutResult(status -> {
+            int updated = pullRequestRepository.recordDiffStats(pullRequest.getId(), sourceHeadId, targetHeadId,
+                    files.size(), totalAdditions, totalDeletions, computedAt);
+            if (updated == 0) {
+                upToDate.incrementAndGet();
+                return;
+            }
+            if (!headsAre(pullRequest, sourceHeadId, targetHeadId)) {
+                status.setRollbackOnly();
+                discarded.incrementAndGet();
+                return;
+            }
+            fileStatRepository.deleteByPullRequestId(pullRequest.getId());
+            fileStatRepository.saveAll(files);
+        });
+    }
+
+    private boolean headsAre(PullRequest pullRequest, long sourceHeadId, long targetHeadId) {
+        return branchHeadService.getHeadCommitId(pullRequest.getSourceBranch()) == sourceHeadId
+                && branchHeadService.getHeadCommitId(pullRequest.getTargetBranch()) == targetHeadId;
+    }
+
+    private Map<String, Object> toMap(long sourceHeadId, long targetHeadId, LocalDateTime computedAt,
+                                      List<PullRequestFileStat> files) {
+        int additions = 0;
+        int deletions = 0;
+        List<Map<String, Object>> fileMaps = new ArrayList<>(files.size());
+        for (PullRequestFileStat file : files) {
+            Map<String, Object> fileMap = new LinkedHashMap<>();
+            fileMap.put("path", file.getPath());
+            fileMap.put("additions", file.getAdditions());
+            fileMap.put("deletions", file.getDeletions());
+            fileMaps.add(fileMap);
+            additions += file.getAdditions();
+            deletions += file.getDeletions();
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("filesChanged", files.size());
+        stats.put("additions", additions);
+        stats.put("deletions", deletions);
+        stats.put("files", fileMaps);
+        stats.put("sourceHeadCommitId", sourceHeadId);
+        stats.put("targetHeadCommitId", targetHeadId);
+        stats.put("computedAt", computedAt);
+        return stats;
+    }
+}
@@ -0,0 +1,150 @@
+package com.codeshare.platform.service;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.springframework.stereotype.Service;
+
+import com.codeshare.platform.dto.FileDiff;
+import com.codeshare.platform.dto.FileDiffPage;
+import com.codeshare.platform.model.PullRequest;
+import com.codeshare.platform.model.PullRequestFileStat;
+
+/**
+ * Diffs of single pull request files, served a range of hunk lines at a time.
+ * Only the file that is asked for is loaded and diffed; the diff is cached by content hash,
+ * so fetching the following pages of a large file does not diff it again.
+ */
+@Service
+public class PullRequestFileDiffService {
+
+    public static final int MAX_PAGE_LINES = 5000;
+
+    private final PullRequestDiffStatsService pullRequestDiffStatsService;
+    private final BlobStore blobStore;
+    private final DiffService diffService;
+
+    public PullRequestFileDiffService(PullRequestDiffStatsService pullRequestDiffStatsService,
+                                      BlobStore blobStore,
+                                      DiffService diffService) {
+        this.pullRequestDiffStatsService = pullRequestDiffStatsService;
+        this.blobStore = blobStore;
+        this.diffService = diffService;
+    }
+
+    /**
+     * Hunks of one changed file, from the cursor position up to about maxLines lines
+     * @param cursor null for the first page, otherwise the nextCursor of the previous page
+     * @return empty if the file is not changed by the pull request
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public Optional<FileDiffPage> getFileDiff(PullRequest pullRequest, String path, String cursor, int maxLines) {
+        Optional<PullRequestFileStat> file = pullRequestDiffStatsService.getFileStat(pullRequest, path);
+        if (file.isEmpty()) {
+            return Optional.empty();
+        }
+
+        PullRequestFileStat stat = file.get();
+        Set<String> hashes = new HashSet<>();
+        hashes.add(stat.getOldBlobHash());
+        hashes.add(stat.getNewBlobHash());
+        hashes.remove(null);
+        Map<String, String> contentByHash = blobStore.getAll(hashes);
+        FileDiff diff = diffService.diffBlobs(stat.getOldBlobHash(), contentByHash.get(stat.getOldBlobHash()),
+                stat.getNewBlobHash(), contentByHash.get(stat.getNewBlobHash()));
+
+        FileDiffPage page = new FileDiffPage();
+        page.setPath(path);
+        page.setAdditions(diff.getAdditions());
+        page.setDeletions(diff.getDeletions());
+        page.setExact(diff.isExact());
+
+        // The cursor is "<hunk index>:<line offset within the hunk>"
+        int[] position = parseCursor(cursor);
+        int hunkIndex = position[0];
+        int lineOffset = position[1];
+        int budget = Math.max(1, Math.min(maxLines, MAX_PAGE_LINES));
+        List<FileDiff.Hunk> hunks = diff.getHunks();
+        if (hunkIndex < hunks.size() && lineOffset >= hunks.get(hunkIndex).getLines().size()) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        while (hunkIndex < hunks.size() && budget > 0) {
+            FileDiff.Hunk hunk = hunks.get(hunkIndex);
+            int end = Math.min(hunk.getLines().size(), lineOffset + budget);
+            page.getHunks().add(slice(hunk, lineOffset, end));
+            budget -= end - lineOffset;
+            if (end == hunk.getLines().size()) {
+                hunkIndex++;
+                lineOffset = 0;
+            } else {
+                lineOffset = end;
+            }
+        }
+        if (hunkIndex < hunks.size()) {
+            page.setNextCursor(hunkIndex + ":" + lineOffset);
+        }
+        return Optional.of(page);
+    }
+
+    private int[] parseCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return new int[] {0, 0};
+        }
+        String[] parts = cursor.split(":");
+        try {
+            if (parts.length == 2) {
+                int hunkIndex = Integer.parseInt(parts[0]);
+                int lineOffset = Integer.parseInt(parts[1]);
+                if (hunkIndex >= 0 && lineOffset >= 0) {
+                    return new int[] {hunkIndex, lineOffset};
+                }
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Invalid cursor: " + cursor);
+    }
+
+    /**
+     * Lines [from, to) of a hunk as a hunk of their own, with line numbers counted from the hunk start
+     */
+    private FileDiff.Hunk slice(FileDiff.Hunk hunk, int from, int to) {
+        if (from == 0 && to == hunk.getLines().size()) {
+            return hunk;
+        }
+        // First line of each side, undoing the unified diff convention for empty ranges
+        int oldLine = hunk.getOldLines() == 0 ? hunk.getOldStart() + 1 : hunk.getOldStart();
+        int newLine = hunk.getNewLines() == 0 ? hunk.getNewStart() + 1 : hunk.getNewStart();
+        for (int i = 0; i < from; i++) {
+            String line = hunk.getLines().get(i);
+            if (!line.startsWith("+ ")) {
+                oldLine++;
+            }
+            if (!line.startsWith("- ")) {
+                newLine++;
+            }
+        }
+
+        List<String> lines = hunk.getLines().subList(from, Math.min(to, hunk.getLines().size()));
+        int oldLines = 0;
+        int newLines = 0;
+        for (String line : lines) {
+            if (!line.startsWith("+ ")) {
+                oldLines++;
+            }
+            if (!line.startsWith("- ")) {
+                newLines++;
+            }
+        }
+        FileDiff.Hunk slice = new FileDiff.Hunk();
+        slice.setOldStart(oldLines == 0 ? oldLine - 1 : oldLine);
+        slice.setOldLines(oldLines);
+        slice.setNewStart(newLines == 0 ? newLine - 1 : newLine);
+        slice.setNewLines(newLines);
+        slice.getLines().addAll(lines);
+        return slice;
+    }
+}
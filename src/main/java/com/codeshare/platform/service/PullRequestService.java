@@ -4,6 +4,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
+import com.codeshare.platform.dto.ChangedFilePage;
+import com.codeshare.platform.dto.FileDiffPage;
+import com.codeshare.platform.dto.MergeCheckResult;
 import com.codeshare.platform.model.Project;
 import com.codeshare.platform.model.PullRequest;
 import com.codeshare.platform.model.PullRequestStatus;
@@ -18,10 +21,14 @@ public interface PullRequestService {
     PullRequest updatePullRequest(PullRequest pullRequest);
     void deletePullRequest(Long id);
     boolean checkMergeable(PullRequest pullRequest);
+    MergeCheckResult checkMergeability(PullRequest pullRequest);
+    Map<String, Object> getMergeabilityStatus(PullRequest pullRequest);
     void mergePullRequest(PullRequest pullRequest, User merger, String mergeMessage);
     void closePullRequest(PullRequest pullRequest, User closer);
     Map<String, Object> getDiffStats(PullRequest pullRequest);
     List<String> getChangedFiles(PullRequest pullRequest);
+    ChangedFilePage getChangedFilePage(PullRequest pullRequest, String cursor, int limit);
+    Optional<FileDiffPage> getFileDiffPage(PullRequest pullRequest, String path, String cursor, int maxLines);
     List<PullRequest> getAllOpenPullRequests();
     List<PullRequest> getPullRequestsAssignedToUser(User user);
     List<PullRequest> getPullRequestsMentioningUser(User user);
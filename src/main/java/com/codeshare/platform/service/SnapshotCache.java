@@ -0,0 +1,46 @@
+package com.codeshare.platform.service;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.codeshare.platform.util.LruCache;
+
+/**
+ * LRU cache of branch snapshots keyed by commit id.
+ * A snapshot is the path -> blob hash map of every file as of that commit,
+ * so memory is bounded by the number of cached paths rather than file sizes.
+ */
+@Service
+public class SnapshotCache {
+
+    private final LruCache<Long, Map<String, String>> snapshots;
+
+    public SnapshotCache(@Value("${vcs.snapshot-cache.max-paths:500000}") long maxPaths) {
+        this.snapshots = new LruCache<>(maxPaths, (commitId, snapshot) -> Math.max(1, snapshot.size()));
+    }
+
+    /**
+     * Get the cached snapshot for a commit
+     * @return unmodifiable path -> blob hash map, or null if not cached
+     */
+    public Map<String, String> get(Long commitId) {
+        return snapshots.get(commitId);
+    }
+
+    /**
+     * Cache the snapshot for a commit. The map must not be modified afterwards.
+     * @return the cached, unmodifiable view of the snapshot
+     */
+    public Map<String, String> put(Long commitId, Map<String, String> snapshot) {
+        Map<String, String> unmodifiable = Collections.unmodifiableMap(snapshot);
+        snapshots.put(commitId, unmodifiable);
+        return unmodifiable;
+    }
+
+    public Map<String, Object> getStats() {
+        return snapshots.getStats();
+    }
+}
@@ -0,0 +1,201 @@
+package com.codeshare.platform.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.merge.MergeAlgorithm;
+import org.eclipse.jgit.merge.MergeChunk;
+import org.eclipse.jgit.merge.MergeResult;
+import org.springframework.stereotype.Service;
+
+import com.codeshare.platform.dto.MergeConflict;
+import com.codeshare.platform.dto.PathChange;
+import com.codeshare.platform.exception.MergeConflictException;
+
+/**
+ * Three-way merge of snapshot trees.
+ * Only paths that differ from the merge base are looked at, and identical subtrees are skipped by hash,
+ * so the cost depends on the size of the changes rather than the size of the project.
+ */
+@Service
+public class ThreeWayMergeService {
+
+    private final TreeManifestService treeManifestService;
+    private final BlobStore blobStore;
+
+    public ThreeWayMergeService(TreeManifestService treeManifestService, BlobStore blobStore) {
+        this.treeManifestService = treeManifestService;
+        this.blobStore = blobStore;
+    }
+
+    /**
+     * Merge the changes made between base and theirs into ours. A null tree hash is the empty tree.
+     * @return path -> content changes to commit on top of ours, with null content deleting the path
+     * @throws MergeConflictException listing every path that cannot be merged
+     * @throws IllegalStateException if a blob the merge needs cannot be loaded
+     */
+    public Map<String, String> merge(String baseTreeHash, String oursTreeHash, String theirsTreeHash) {
+        List<PathChange> theirChanges = treeManifestService.diff(baseTreeHash, theirsTreeHash);
+        if (theirChanges.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, PathChange> ourChanges = new HashMap<>();
+        for (PathChange change : treeManifestService.diff(baseTreeHash, oursTreeHash)) {
+            ourChanges.put(change.getPath(), change);
+        }
+
+        // Blob hash of every path whose merged version differs from ours
+        Map<String, String> mergedHashes = new TreeMap<>();
+        List<PathChange[]> contentMerges = new ArrayList<>();
+        List<MergeConflict> conflicts = new ArrayList<>();
+        for (PathChange theirs : theirChanges) {
+            PathChange ours = ourChanges.get(theirs.getPath());
+            if (ours == null) {
+                mergedHashes.put(theirs.getPath(), theirs.getNewBlobHash());
+            } else if (Objects.equals(ours.getNewBlobHash(), theirs.getNewBlobHash())) {
+                // Both sides made the same change
+            } else if (ours.getNewBlobHash() == null) {
+                conflicts.add(new MergeConflict(theirs.getPath(), "Deleted in target, modified in source", new ArrayList<>()));
+            } else if (theirs.getNewBlobHash() == null) {
+                conflicts.add(new MergeConflict(theirs.getPath(), "Modified in target, deleted in source", new ArrayList<>()));
+            } else {
+                contentMerges.add(new PathChange[] {ours, theirs});
+            }
+        }
+
+        // Load only the blobs that are needed, with one lookup
+        Set<String> hashes = new HashSet<>(mergedHashes.values());
+        for (PathChange[] sides : contentMerges) {
+            hashes.add(sides[1].getOldBlobHash());
+            hashes.add(sides[0].getNewBlobHash());
+            hashes.add(sides[1].getNewBlobHash());
+        }
+        Map<String, String> contentByHash = loadBlobs(hashes);
+
+        Map<String, String> result = new TreeMap<>();
+        mergedHashes.forEach((path, hash) -> result.put(path, hash == null ? null : contentByHash.get(hash)));
+        for (PathChange[] sides : contentMerges) {
+            String path = sides[1].getPath();
+            String base = sides[1].getOldBlobHash() == null ? "" : contentByHash.get(sides[1].getOldBlobHash());
+            MergeConflict conflict = mergeContent(path, base,
+                    contentByHash.get(sides[0].getNewBlobHash()), contentByHash.get(sides[1].getNewBlobHash()), result);
+            if (conflict != null) {
+                conflicts.add(conflict);
+            }
+        }
+
+        if (!conflicts.isEmpty()) {
+            conflicts.sort((a, b) -> a.getPath().compareTo(b.getPath()));
+            throw new MergeConflictException(conflicts);
+        }
+        return result;
+    }
+
+    /**
+     * Merge branches without shared history, where every file both sides have would otherwise be
+     * merged against an empty base and conflict. The source wins: every path theirs contains is taken
+     * over as it is in theirs, and paths only ours has are kept.
+     * @return path -> content changes to commit on top of ours; never deletes a path
+     * @throws IllegalStateException if a blob the merge needs cannot be loaded
+     */
+    public Map<String, String> mergeUnrelated(String oursTreeHash, String theirsTreeHash) {
+        Map<String, String> mergedHashes = new TreeMap<>();
+        for (PathChange change : treeManifestService.diff(oursTreeHash, theirsTreeHash)) {
+            if (change.getNewBlobHash() != null) {
+                mergedHashes.put(change.getPath(), change.getNewBlobHash());
+            }
+        }
+
+        Map<String, String> contentByHash = loadBlobs(new HashSet<>(mergedHashes.values()));
+        Map<String, String> result = new TreeMap<>();
+        mergedHashes.forEach((path, hash) -> result.put(path, contentByHash.get(hash)));
+        return result;
+    }
+
+    /**
+     * Load blobs with one lookup. A missing blob must not be merged as an empty or deleted file.
+     */
+    private Map<String, String> loadBlobs(Set<String> hashes) {
+        hashes.remove(null);
+        Map<String, String> contentByHash = blobStore.getAll(hashes);
+        for (String hash : hashes) {
+            if (contentByHash.get(hash) == null) {
+                throw new IllegalStateException("Blob " + hash + " is missing from the blob store");
+            }
+        }
+        return contentByHash;
+    }
+
+    /**
+     * Line-based merge of one file; puts the merged content into result, or returns the conflicting hunks
+     */
+    private MergeConflict mergeContent(String path, String base, String ours, String theirs, Map<String, String> result) {
+        RawText baseText = toRawText(base);
+        RawText oursText = toRawText(ours);
+        RawText theirsText = toRawText(theirs);
+        RawText[] sequences = {baseText, oursText, theirsText};
+
+        MergeResult<RawText> merged = new MergeAlgorithm(DiffAlgorithm.getAlgorithm(DiffAlgorithm.SupportedAlgorithm.HISTOGRAM))
+                .merge(RawTextComparator.DEFAULT, baseText, oursText, theirsText);
+
+        if (!merged.containsConflicts()) {
+            StringBuilder content = new StringBuilder();
+            for (MergeChunk chunk : merged) {
+                content.append(sequences[chunk.getSequenceIndex()].getString(chunk.getBegin(), chunk.getEnd(), false));
+            }
+            result.put(path, content.toString());
+            return null;
+        }
+
+        // A conflict is reported as the ours range, optionally the base range, then the theirs range
+        List<MergeConflict.Hunk> hunks = new ArrayList<>();
+        MergeConflict.Hunk hunk = null;
+        for (MergeChunk chunk : merged) {
+            if (chunk.getConflictState() == MergeChunk.ConflictState.NO_CONFLICT) {
+                continue;
+            }
+            if (chunk.getConflictState() == MergeChunk.ConflictState.FIRST_CONFLICTING_RANGE) {
+                hunk = new MergeConflict.Hunk();
+                hunks.add(hunk);
+            }
+            if (hunk == null) {
+                continue;
+            }
+            List<String> lines = lines(sequences[chunk.getSequenceIndex()], chunk.getBegin(), chunk.getEnd());
+            switch (chunk.getSequenceIndex()) {
+                case 0 -> hunk.setBaseLines(lines);
+                case 1 -> {
+                    hunk.setOursStartLine(chunk.getBegin() + 1);
+                    hunk.setOursLines(lines);
+                }
+                default -> {
+                    hunk.setTheirsStartLine(chunk.getBegin() + 1);
+                    hunk.setTheirsLines(lines);
+                }
+            }
+        }
+        return new MergeConflict(path, "Both sides changed the same lines", hunks);
+    }
+
+    private List<String> lines(RawText text, int begin, int end) {
+        List<String> lines = new ArrayList<>(end - begin);
+        for (int i = begin; i < end; i++) {
+            lines.add(text.getString(i));
+        }
+        return lines;
+    }
+
+    private RawText toRawText(String content) {
+        return new RawText(content == null ? new byte[0] : content.getBytes(StandardCharsets.UTF_8));
+    }
+}
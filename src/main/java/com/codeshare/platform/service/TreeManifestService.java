@@ -0,0 +1,190 @@
+package com.codeshare.platform.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.codeshare.platform.dto.PathChange;
+import com.codeshare.platform.model.TreeNode;
+import com.codeshare.platform.repository.TreeNodeRepository;
+import com.codeshare.platform.util.LruCache;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Git-style tree manifests: every directory is a node hashed over its sorted (name, hash) entries,
+ * so two snapshots with the same root hash are identical and a diff only descends
+ * into directories whose hashes differ.
+ */
+@Service
+public class TreeManifestService {
+
+    private final TreeNodeRepository treeNodeRepository;
+    private final ObjectMapper objectMapper;
+
+    // Tree nodes never change, so they can be cached without invalidation
+    private final LruCache<String, Map<String, String>> nodeCache;
+
+    public TreeManifestService(TreeNodeRepository treeNodeRepository,
+                               ObjectMapper objectMapper,
+                               @Value("${vcs.tree-cache.max-entries:200000}") long maxCachedEntries) {
+        this.treeNodeRepository = treeNodeRepository;
+        this.objectMapper = objectMapper;
+        this.nodeCache = new LruCache<>(maxCachedEntries, (hash, entries) -> Math.max(1, entries.size()));
+    }
+
+    /**
+     * Store the tree of a path -> blob hash snapshot
+     * @return hash of the root tree node
+     */
+    public String writeTree(Map<String, String> snapshotRefs) {
+        DirectoryBuilder root = new DirectoryBuilder();
+        for (Map.Entry<String, String> entry : snapshotRefs.entrySet()) {
+            if (entry.getValue() != null) {
+                root.add(entry.getKey(), entry.getValue());
+            }
+        }
+
+        Map<String, Map<String, String>> nodes = new LinkedHashMap<>();
+        String rootHash = root.hash(nodes);
+        storeNodes(nodes);
+        return rootHash;
+    }
+
+    /**
+     * Get the files that differ between two trees. A null tree hash is the empty tree.
+     * @return changes ordered by path
+     */
+    public List<PathChange> diff(String oldTreeHash, String newTreeHash) {
+        List<PathChange> changes = new ArrayList<>();
+        diff("", oldTreeHash, newTreeHash, changes);
+        return changes;
+    }
+
+    public Map<String, Object> getCacheStats() {
+        return nodeCache.getStats();
+    }
+
+    private void diff(String prefix, String oldHash, String newHash, List<PathChange> changes) {
+        if (Objects.equals(oldHash, newHash)) {
+            return;
+        }
+
+        Map<String, String> oldEntries = readNode(oldHash);
+        Map<String, String> newEntries = readNode(newHash);
+
+        Set<String> names = new TreeSet<>(oldEntries.keySet());
+        names.addAll(newEntries.keySet());
+        for (String name : names) {
+            String oldEntry = oldEntries.get(name);
+            String newEntry = newEntries.get(name);
+            if (Objects.equals(oldEntry, newEntry)) {
+                continue;
+            }
+
+            if (name.endsWith("/")) {
+                diff(prefix + name, oldEntry, newEntry, changes);
+            } else {
+                changes.add(new PathChange(prefix + name, oldEntry, newEntry));
+            }
+        }
+    }
+
+    private Map<String, String> readNode(String hash) {
+        if (hash == null) {
+            return Map.of();
+        }
+
+        Map<String, String> entries = nodeCache.get(hash);
+        if (entries == null) {
+            TreeNode node = treeNodeRepository.findById(hash)
+                    .orElseThrow(() -> new IllegalStateException("Tree node not found: " + hash));
+            entries = parse(node.getEntries());
+            nodeCache.put(hash, entries);
+        }
+        return entries;
+    }
+
+    private void storeNodes(Map<String, Map<String, String>> nodes) {
+        Set<String> unknown = new HashSet<>();
+        for (String hash : nodes.keySet()) {
+            if (nodeCache.get(hash) == null) {
+                unknown.add(hash);
+            }
+        }
+
+        if (!unknown.isEmpty()) {
+            // Unchanged directories already exist; only insert the nodes this snapshot introduced
+            unknown.removeAll(treeNodeRepository.findExistingHashes(unknown));
+            LocalDateTime now = LocalDateTime.now();
+            for (String hash : unknown) {
+                treeNodeRepository.insertIfAbsent(hash, toJson(nodes.get(hash)), now);
+            }
+        }
+
+        nodes.forEach(nodeCache::put);
+    }
+
+    private String toJson(Map<String, String> entries) {
+        try {
+            return objectMapper.writeValueAsString(entries);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize tree node", e);
+        }
+    }
+
+    private Map<String, String> parse(String json) {
+        try {
+            return objectMapper.readValue(json, new TypeReference<TreeMap<String, String>>() {});
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to parse tree node", e);
+        }
+    }
+
+    /**
+     * In-memory directory used while building a tree from a flat snapshot
+     */
+    private static class DirectoryBuilder {
+        private final Map<String, String> files = new TreeMap<>();
+        private final Map<String, DirectoryBuilder> directories = new TreeMap<>();
+
+        void add(String path, String blobHash) {
+            int slash = path.indexOf('/');
+            if (slash < 0) {
+                files.put(path, blobHash);
+            } else {
+                directories.computeIfAbsent(path.substring(0, slash + 1), name -> new DirectoryBuilder())
+                        .add(path.substring(slash + 1), blobHash);
+            }
+        }
+
+        /**
+         * Hash this directory bottom-up, collecting every node into the given map
+         */
+        String hash(Map<String, Map<String, String>> nodes) {
+            Map<String, String> entries = new TreeMap<>(files);
+            for (Map.Entry<String, DirectoryBuilder> directory : directories.entrySet()) {
+                entries.put(directory.getKey(), directory.getValue().hash(nodes));
+            }
+
+            StringBuilder canonical = new StringBuilder();
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                canonical.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+            }
+            String hash = BlobStore.hashOf("tree\n" + canonical);
+            nodes.put(hash, entries);
+            return hash;
+        }
+    }
+}
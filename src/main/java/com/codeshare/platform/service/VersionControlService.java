@@ -1,5 +1,7 @@
 package com.codeshare.platform.service;
 
+import com.codeshare.platform.dto.CommitDTO;
+import com.codeshare.platform.dto.PathChange;
 import com.codeshare.platform.model.*;
 import java.util.List;
 import java.util.Map;
@@ -18,8 +20,10 @@ public interface VersionControlService {
     
     // History operations
     List<Commit> getCommitHistory(Branch branch);
+    List<CommitDTO> getCommitSummaries(Branch branch);
     List<String> getFileHistory(File file, Branch branch);
     
     // Diff operations
     Map<String, Object> getFileDiff(File file, Commit oldCommit, Commit newCommit);
+    List<PathChange> getChangedPaths(Branch oldBranch, Branch newBranch);
 }
\ No newline at end of file
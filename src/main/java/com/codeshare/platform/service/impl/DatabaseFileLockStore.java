@@ -0,0 +1,66 @@
+package com.codeshare.platform.service.impl;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.codeshare.platform.model.FileLease;
+import com.codeshare.platform.repository.FileLeaseRepository;
+import com.codeshare.platform.service.FileLockStore;
+
+/**
+ * File leases stored in the file_leases table, so they survive restarts and are shared by all instances.
+ * Acquisition is a single upsert on the file id primary key, so two nodes can never both win.
+ */
+@Component
+@ConditionalOnProperty(name = "vcs.file-lock.store", havingValue = "database")
+public class DatabaseFileLockStore implements FileLockStore {
+
+    private final FileLeaseRepository fileLeaseRepository;
+
+    public DatabaseFileLockStore(FileLeaseRepository fileLeaseRepository) {
+        this.fileLeaseRepository = fileLeaseRepository;
+    }
+
+    @Override
+    public boolean tryAcquire(FileLease lease) {
+        return fileLeaseRepository.acquire(lease.getFileId(), lease.getProjectId(), lease.getUserId(), lease.getUsername(),
+                lease.getAcquiredAt(), lease.getExpiresAt()) > 0;
+    }
+
+    @Override
+    public boolean renew(Long fileId, Long userId, LocalDateTime now, LocalDateTime expiresAt) {
+        return fileLeaseRepository.renew(fileId, userId, now, expiresAt) > 0;
+    }
+
+    @Override
+    public boolean release(Long fileId, Long userId) {
+        return fileLeaseRepository.release(fileId, userId) > 0;
+    }
+
+    @Override
+    public Optional<FileLease> find(Long fileId) {
+        return fileLeaseRepository.findById(fileId);
+    }
+
+    @Override
+    public List<FileLease> findByProject(Long projectId) {
+        return fileLeaseRepository.findByProjectId(projectId);
+    }
+
+    @Override
+    public List<FileLease> purgeExpired(LocalDateTime now) {
+        List<FileLease> purged = new ArrayList<>();
+        for (FileLease lease : fileLeaseRepository.findByExpiresAtBefore(now)) {
+            // Another node may have purged it, or a user taken it over, since it was read
+            if (fileLeaseRepository.deleteIfUnchanged(lease.getFileId(), lease.getExpiresAt()) > 0) {
+                purged.add(lease);
+            }
+        }
+        return purged;
+    }
+}
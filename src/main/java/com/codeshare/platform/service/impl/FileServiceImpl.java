@@ -1,7 +1,6 @@
 package com.codeshare.platform.service.impl;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -15,20 +14,19 @@ import com.codeshare.platform.model.Branch;
 import com.codeshare.platform.model.Commit;
 import com.codeshare.platform.model.File;
 import com.codeshare.platform.model.Project;
-import com.codeshare.platform.repository.CommitRepository;
 import com.codeshare.platform.repository.FileRepository;
+import com.codeshare.platform.service.BranchHeadService;
 import com.codeshare.platform.service.FileService;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.codeshare.platform.service.VersionControlService;
 
 @Service
 public class FileServiceImpl implements FileService {
 
     private final FileRepository fileRepository;
     @Autowired
-    private ObjectMapper objectMapper;
+    private VersionControlService versionControlService;
     @Autowired
-    private CommitRepository commitRepository;
+    private BranchHeadService branchHeadService;
     private static final Logger logger = LoggerFactory.getLogger(FileServiceImpl.class);
 
     @Autowired
@@ -92,16 +90,15 @@ public class FileServiceImpl implements FileService {
         List<File> result = new ArrayList<>();
         
         // Get the latest commit for this branch
-        Optional<Commit> latestCommit = commitRepository.findFirstByBranchOrderByCreatedAtDesc(branch);
+        Optional<Commit> latestCommit = branchHeadService.getHeadCommit(branch);
         
         if (!latestCommit.isPresent()) {
             // If no commits for this branch, return the base files
             return existingFiles;
         }
         
-        // Get the file snapshot for this branch
-        Map<String, String> fileSnapshot = new HashMap<>();
-        buildSnapshotFromCommitHistory(fileSnapshot, latestCommit.get());
+        // Get the file snapshot for this branch (served from the snapshot cache when warm)
+        Map<String, String> fileSnapshot = versionControlService.getProjectSnapshot(project, branch);
         
         // Create copies of the files with content from the branch
         for (File file : existingFiles) {
@@ -122,28 +119,5 @@ public class FileServiceImpl implements FileService {
         
         return result;
     }
-    
-    /**
-     * Helper method to build a snapshot by traversing commit history
-     */
-    private void buildSnapshotFromCommitHistory(Map<String, String> snapshot, Commit commit) {
-        // First apply parent commit changes
-        if (commit.getParentCommit() != null) {
-            buildSnapshotFromCommitHistory(snapshot, commit.getParentCommit());
-        }
-        
-        // Then apply this commit's changes
-        try {
-            if (commit.getFileChanges() != null && !commit.getFileChanges().isEmpty()) {
-                Map<String, String> commitChanges = objectMapper.readValue(
-                    commit.getFileChanges(), 
-                    new TypeReference<HashMap<String, String>>() {}
-                );
-                snapshot.putAll(commitChanges);
-            }
-        } catch (Exception e) {
-            // Log error but continue
-            System.err.println("Error parsing file changes: " + e.getMessage());
-        }
-    }
+
 }
\ No newline at end of file
@@ -0,0 +1,91 @@
+package com.codeshare.platform.service.impl;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.codeshare.platform.model.FileLease;
+import com.codeshare.platform.service.FileLockStore;
+
+/**
+ * File leases held in this JVM; lost on restart and invisible to other instances.
+ * Leases in the map are never modified, only replaced, so readers always see a consistent lease.
+ */
+@Component
+@ConditionalOnProperty(name = "vcs.file-lock.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryFileLockStore implements FileLockStore {
+
+    // Map to store file leases: fileId -> lease
+    private final Map<Long, FileLease> leases = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean tryAcquire(FileLease lease) {
+        FileLease result = leases.compute(lease.getFileId(), (fileId, current) -> {
+            if (current == null || current.isExpired(lease.getAcquiredAt()) || current.getUserId().equals(lease.getUserId())) {
+                return lease;
+            }
+            return current;
+        });
+        return result == lease;
+    }
+
+    @Override
+    public boolean renew(Long fileId, Long userId, LocalDateTime now, LocalDateTime expiresAt) {
+        boolean[] renewed = new boolean[1];
+        leases.computeIfPresent(fileId, (id, current) -> {
+            if (current.getUserId().equals(userId) && !current.isExpired(now)) {
+                renewed[0] = true;
+                return new FileLease(id, current.getProjectId(), userId, current.getUsername(), current.getAcquiredAt(), expiresAt);
+            }
+            return current;
+        });
+        return renewed[0];
+    }
+
+    @Override
+    public boolean release(Long fileId, Long userId) {
+        boolean[] released = new boolean[1];
+        leases.computeIfPresent(fileId, (id, current) -> {
+            if (current.getUserId().equals(userId)) {
+                released[0] = true;
+                return null;
+            }
+            return current;
+        });
+        return released[0];
+    }
+
+    @Override
+    public Optional<FileLease> find(Long fileId) {
+        return Optional.ofNullable(leases.get(fileId));
+    }
+
+    @Override
+    public List<FileLease> findByProject(Long projectId) {
+        List<FileLease> result = new ArrayList<>();
+        for (FileLease lease : leases.values()) {
+            if (projectId.equals(lease.getProjectId())) {
+                result.add(lease);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<FileLease> purgeExpired(LocalDateTime now) {
+        List<FileLease> purged = new ArrayList<>();
+        for (Map.Entry<Long, FileLease> entry : leases.entrySet()) {
+            // Only removes the lease that was seen expired, not one acquired in the meantime
+            if (entry.getValue().isExpired(now) && leases.remove(entry.getKey(), entry.getValue())) {
+                purged.add(entry.getValue());
+            }
+        }
+        return purged;
+    }
+}
@@ -0,0 +1,105 @@
+package com.codeshare.platform.service.impl;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.StampedLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.codeshare.platform.service.ProjectLockProvider;
+
+/**
+ * Project locks held in this JVM; only correct when a single instance serves the project.
+ *
+ * Projects share a fixed pool of lock stripes, so memory stays bounded however many projects are touched.
+ * Two projects on the same stripe serialize their writes, which is the price for that bound.
+ * StampedLock is not reentrant, which is fine because {@link com.codeshare.platform.service.ConcurrencyService}
+ * never acquires a project lock twice on one thread.
+ */
+@Component
+@ConditionalOnProperty(name = "vcs.lock.provider", havingValue = "memory", matchIfMissing = true)
+public class InMemoryProjectLockProvider implements ProjectLockProvider {
+
+    private final StampedLock[] stripes;
+    private final int stripeMask;
+
+    // Project that last acquired each stripe, to count acquisitions that found another project holding it
+    private final AtomicLongArray lastProjectByStripe;
+    private final AtomicLong acquisitions = new AtomicLong();
+    private final AtomicLong collisions = new AtomicLong();
+
+    public InMemoryProjectLockProvider(@Value("${vcs.lock.stripes:1024}") int stripeCount) {
+        // Round up to a power of two so the stripe can be picked with a mask
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new StampedLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new StampedLock();
+        }
+        this.stripeMask = size - 1;
+        this.lastProjectByStripe = new AtomicLongArray(size);
+    }
+
+    @Override
+    public Handle acquire(Long projectId, Mode mode) {
+        int index = stripeOf(projectId);
+        StampedLock lock = stripes[index];
+
+        acquisitions.incrementAndGet();
+        long previousProject = lastProjectByStripe.getAndSet(index, projectId);
+        if (previousProject != projectId && (lock.isWriteLocked() || lock.isReadLocked())) {
+            collisions.incrementAndGet();
+        }
+
+        if (mode == Mode.WRITE) {
+            long stamp = lock.writeLock();
+            return () -> lock.unlockWrite(stamp);
+        }
+        long stamp = lock.readLock();
+        return () -> lock.unlockRead(stamp);
+    }
+
+    @Override
+    public long tryOptimisticRead(Long projectId) {
+        return stripes[stripeOf(projectId)].tryOptimisticRead();
+    }
+
+    @Override
+    public boolean validate(Long projectId, long stamp) {
+        return stripes[stripeOf(projectId)].validate(stamp);
+    }
+
+    @Override
+    public String getName() {
+        return "memory";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        int held = 0;
+        for (StampedLock lock : stripes) {
+            if (lock.isWriteLocked() || lock.isReadLocked()) {
+                held++;
+            }
+        }
+        long total = acquisitions.get();
+        long collided = collisions.get();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("stripes", stripes.length);
+        stats.put("heldStripes", held);
+        stats.put("acquisitions", total);
+        stats.put("stripeCollisions", collided);
+        stats.put("stripeCollisionRate", total == 0 ? 0.0 : (double) collided / total);
+        return stats;
+    }
+
+    private int stripeOf(Long projectId) {
+        // Spread the id bits so sequential ids do not all differ only in the low bits
+        long h = projectId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & stripeMask;
+    }
+}
@@ -0,0 +1,176 @@
+package com.codeshare.platform.service.impl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.codeshare.platform.exception.ConcurrentUpdateException;
+import com.codeshare.platform.service.ProjectLockProvider;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Project locks backed by Postgres session-level advisory locks, so they hold across app instances.
+ *
+ * Each held lock keeps its own connection, outside any JPA transaction, until it is released.
+ * Those connections come from a small pool of their own, never from the application pool, so lock
+ * holders cannot take the connections their callbacks need for JPA. The pool size
+ * (vcs.lock.postgres.max-connections) caps how many projects one instance can have locked at once;
+ * further requests wait for a lock connection, up to the lock timeout.
+ * Waiting is done by polling pg_try_advisory_lock so a blocked request never holds a connection.
+ * If the holder dies, Postgres drops its session and the lock with it.
+ */
+@Component
+@ConditionalOnProperty(name = "vcs.lock.provider", havingValue = "postgres")
+public class PostgresAdvisoryLockProvider implements ProjectLockProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostgresAdvisoryLockProvider.class);
+
+    // First half of the two-int advisory lock key, so project locks do not collide with other advisory lock users
+    private static final int PROJECT_LOCK_NAMESPACE = 0x43535031;
+
+    private final HikariDataSource dataSource;
+    private final long timeoutMillis;
+    private final long maxPollIntervalMillis;
+
+    public PostgresAdvisoryLockProvider(@Value("${spring.datasource.url}") String url,
+                                        @Value("${spring.datasource.username:}") String username,
+                                        @Value("${spring.datasource.password:}") String password,
+                                        @Value("${vcs.lock.postgres.max-connections:16}") int maxConnections,
+                                        @Value("${vcs.lock.timeout-ms:30000}") long timeoutMillis,
+                                        @Value("${vcs.lock.postgres.poll-interval-ms:50}") long maxPollIntervalMillis) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("project-locks");
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setMaximumPoolSize(Math.max(1, maxConnections));
+        config.setMinimumIdle(1);
+        config.setConnectionTimeout(Math.max(250, timeoutMillis));
+        this.dataSource = new HikariDataSource(config);
+        this.timeoutMillis = timeoutMillis;
+        this.maxPollIntervalMillis = Math.max(1, maxPollIntervalMillis);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dataSource.close();
+    }
+
+    @Override
+    public Handle acquire(Long projectId, Mode mode) {
+        int key = (int) (projectId ^ (projectId >>> 32));
+        String tryLock = mode == Mode.WRITE ? "SELECT pg_try_advisory_lock(?, ?)" : "SELECT pg_try_advisory_lock_shared(?, ?)";
+        String unlock = mode == Mode.WRITE ? "SELECT pg_advisory_unlock(?, ?)" : "SELECT pg_advisory_unlock_shared(?, ?)";
+
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        long pollInterval = 1;
+        while (true) {
+            Connection connection = tryLock(tryLock, key);
+            if (connection != null) {
+                return () -> release(connection, unlock, key, projectId);
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                throw new ConcurrentUpdateException("Timed out waiting for the lock on project " + projectId);
+            }
+            try {
+                Thread.sleep(pollInterval);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the lock on project " + projectId, e);
+            }
+            pollInterval = Math.min(pollInterval * 2, maxPollIntervalMillis);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "postgres";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxConnections", dataSource.getMaximumPoolSize());
+        if (pool != null) {
+            stats.put("heldConnections", pool.getActiveConnections());
+            stats.put("waitingForConnection", pool.getThreadsAwaitingConnection());
+        }
+        return stats;
+    }
+
+    /**
+     * Try the lock once on a fresh connection
+     * @return the connection now holding the lock, or null if the lock is taken
+     */
+    private Connection tryLock(String sql, int key) {
+        Connection connection = null;
+        try {
+            connection = dataSource.getConnection();
+            connection.setAutoCommit(true);
+            if (execute(connection, sql, key)) {
+                return connection;
+            }
+        } catch (SQLTransientConnectionException e) {
+            // Every lock connection stayed in use for the whole lock timeout
+            throw new ConcurrentUpdateException("Timed out waiting for a project lock connection");
+        } catch (SQLException e) {
+            closeQuietly(connection);
+            throw new IllegalStateException("Could not acquire project lock", e);
+        }
+        closeQuietly(connection);
+        return null;
+    }
+
+    private void release(Connection connection, String sql, int key, Long projectId) {
+        try {
+            if (!execute(connection, sql, key)) {
+                logger.warn("Advisory lock for project {} was not held when released", projectId);
+            }
+            closeQuietly(connection);
+        } catch (SQLException e) {
+            // Abort rather than return the connection to the pool, so the session and its lock end with it
+            logger.error("Failed to release advisory lock for project {}", projectId, e);
+            try {
+                connection.abort(Runnable::run);
+            } catch (SQLException abortFailure) {
+                closeQuietly(connection);
+            }
+        }
+    }
+
+    private boolean execute(Connection connection, String sql, int key) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, PROJECT_LOCK_NAMESPACE);
+            statement.setInt(2, key);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getBoolean(1);
+            }
+        }
+    }
+
+    private void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.debug("Failed to close lock connection: {}", e.getMessage());
+        }
+    }
+}
@@ -1,9 +1,6 @@
 package com.codeshare.platform.service.impl;
 
-import java.io.File;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -11,33 +8,30 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
-import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.api.MergeCommand;
-import org.eclipse.jgit.api.ResetCommand;
-import org.eclipse.jgit.lib.Repository;
-import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import com.codeshare.platform.model.Branch;
+import com.codeshare.platform.dto.ChangedFilePage;
+import com.codeshare.platform.dto.FileDiffPage;
+import com.codeshare.platform.dto.MergeCheckResult;
+import com.codeshare.platform.dto.PathChange;
 import com.codeshare.platform.model.Comment;
-import com.codeshare.platform.model.Commit;
+import com.codeshare.platform.model.MergeabilityState;
 import com.codeshare.platform.model.Project;
 import com.codeshare.platform.model.PullRequest;
 import com.codeshare.platform.model.PullRequestStatus;
 import com.codeshare.platform.model.User;
 import com.codeshare.platform.model.UserActivity;
 import com.codeshare.platform.repository.CommentRepository;
-import com.codeshare.platform.repository.CommitRepository;
 import com.codeshare.platform.repository.PullRequestRepository;
 import com.codeshare.platform.service.ActivityService;
+import com.codeshare.platform.service.MergeabilityService;
+import com.codeshare.platform.service.PullRequestDiffStatsService;
+import com.codeshare.platform.service.PullRequestFileDiffService;
 import com.codeshare.platform.service.PullRequestService;
 import com.codeshare.platform.service.VersionControlService;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 @Service
 public class PullRequestServiceImpl implements PullRequestService {
@@ -46,38 +40,39 @@ public class PullRequestServiceImpl implements PullRequestService {
     private final PullRequestRepository pullRequestRepository;
     private final VersionControlService versionControlService;
     private final CommentRepository commentRepository;
-    private final CommitRepository commitRepository;
-    private final ObjectMapper objectMapper;
+    private final MergeabilityService mergeabilityService;
+    private final PullRequestDiffStatsService pullRequestDiffStatsService;
+    private final PullRequestFileDiffService pullRequestFileDiffService;
     @Autowired
     private ActivityService activityService;
-    
-    @Value("${git.repositories.base-path:/tmp/git-repositories}")
-    private String gitRepositoriesBasePath;
 
     @Autowired
     public PullRequestServiceImpl(PullRequestRepository pullRequestRepository, 
                                  VersionControlService versionControlService,
                                  CommentRepository commentRepository,
-                                 CommitRepository commitRepository,
-                                 ObjectMapper objectMapper) {
+                                 MergeabilityService mergeabilityService,
+                                 PullRequestDiffStatsService pullRequestDiffStatsService,
+                                 PullRequestFileDiffService pullRequestFileDiffService) {
         this.pullRequestRepository = pullRequestRepository;
         this.versionControlService = versionControlService;
         this.commentRepository = commentRepository;
-        this.commitRepository = commitRepository;
-        this.objectMapper = objectMapper;
+        this.mergeabilityService = mergeabilityService;
+        this.pullRequestDiffStatsService = pullRequestDiffStatsService;
+        this.pullRequestFileDiffService = pullRequestFileDiffService;
     }
 
     @Override
     public PullRequest createPullRequest(PullRequest pullRequest) {
         pullRequest.setCreatedAt(LocalDateTime.now());
         pullRequest.setStatus(PullRequestStatus.OPEN);
-        
-        // Check if mergeable on creation
-        pullRequest.setMergeable(checkMergeable(pullRequest));
+        pullRequest.setMergeabilityState(MergeabilityState.PENDING);
         
         // Save the pull request
         PullRequest savedPR = pullRequestRepository.save(pullRequest);
         
+        // Mergeability is checked in the background; the PR reports PENDING until then
+        mergeabilityService.enqueue(savedPR);
+        
         // Track activity with correct URL format for your existing pull-request.html
         activityService.trackActivity(
             pullRequest.getAuthor(),
@@ -181,252 +176,18 @@ public class PullRequestServiceImpl implements PullRequestService {
     
     @Override
     public boolean checkMergeable(PullRequest pullRequest) {
-        logger.debug("Checking mergeability for PR ID: {}", pullRequest.getId());
-        
-        try {
-            // 1. Get or create the Git repository for this project
-            String repoPath = getRepositoryPath(pullRequest.getProject());
-            Repository repository = createOrGetRepository(repoPath, pullRequest.getProject());
-            
-            if (repository == null) {
-                logger.error("Failed to get Git repository for project: {}", pullRequest.getProject().getId());
-                return true; // Default to mergeable if can't check
-            }
-            
-            try (Git git = new Git(repository)) {
-                // 2. Get the branch names
-                String sourceBranchName = pullRequest.getSourceBranch().getName();
-                String targetBranchName = pullRequest.getTargetBranch().getName();
-                
-                // Ensure branches exist
-                if (!branchExists(repository, sourceBranchName) || !branchExists(repository, targetBranchName)) {
-                    logger.warn("One or both branches do not exist in Git repository");
-                    syncBranchesToGit(git, pullRequest);
-                }
-                
-                // 3. Try a test merge
-                MergeCommand mergeCommand = git.merge();
-                mergeCommand.setCommit(false); // Don't actually commit the merge
-                
-                // Set the head to merge into (target branch)
-                mergeCommand.include(repository.resolve(targetBranchName));
-                
-                // Start from the source branch
-                git.checkout().setName(sourceBranchName).call();
-                
-                // Perform the merge
-                org.eclipse.jgit.api.MergeResult result = mergeCommand.call();
-                
-                // Check the result
-                org.eclipse.jgit.api.MergeResult.MergeStatus status = result.getMergeStatus();
-                
-                // Clean up - reset any changes from the test merge
-                git.reset().setMode(ResetCommand.ResetType.HARD).call();
-                
-                // Determine mergeability based on status
-                boolean mergeable = (status == org.eclipse.jgit.api.MergeResult.MergeStatus.MERGED || 
-                                   status == org.eclipse.jgit.api.MergeResult.MergeStatus.FAST_FORWARD ||
-                                   status == org.eclipse.jgit.api.MergeResult.MergeStatus.ALREADY_UP_TO_DATE);
-                
-                logger.debug("JGit merge test result: {}, mergeable: {}", status, mergeable);
-                return mergeable;
-            }
-        } catch (Exception e) {
-            logger.error("Error checking PR mergeability using JGit: ", e);
-            // In case of error, default to considering it mergeable
-            return true;
-        }
-    }
-    
-    /**
-     * Get the path where Git repositories are stored
-     */
-    private String getRepositoryPath(Project project) {
-        return gitRepositoriesBasePath + File.separator + project.getId().toString() + ".git";
-    }
-    
-    /**
-     * Create or get an existing Git repository
-     */
-    private Repository createOrGetRepository(String repoPath, Project project) {
-        try {
-            File repositoryDir = new File(repoPath);
-            
-            if (!repositoryDir.exists()) {
-                // Create the repository directory
-                if (!repositoryDir.mkdirs()) {
-                    logger.error("Failed to create repository directory: {}", repoPath);
-                    return null;
-                }
-                
-                // Initialize a new Git repository
-                try (Git git = Git.init().setDirectory(repositoryDir).setBare(false).call()) {
-                    // Add a dummy initial commit to establish the repository
-                    File readmeFile = new File(repositoryDir, "README.md");
-                    if (!readmeFile.exists()) {
-                        readmeFile.createNewFile();
-                        git.add().addFilepattern("README.md").call();
-                        git.commit().setMessage("Initial commit").call();
-                    }
-                    
-                    // Sync project branches and commits to the Git repository
-                    syncProjectToGit(git, project);
-                    
-                    return git.getRepository();
-                }
-            } else {
-                // Open the existing repository
-                FileRepositoryBuilder builder = new FileRepositoryBuilder();
-                Repository repository = builder.setGitDir(new File(repoPath, ".git"))
-                        .readEnvironment()
-                        .findGitDir()
-                        .build();
-                
-                // Make sure it's up to date
-                try (Git git = new Git(repository)) {
-                    syncProjectToGit(git, project);
-                }
-                
-                return repository;
-            }
-        } catch (Exception e) {
-            logger.error("Error creating/getting Git repository: ", e);
-            return null;
-        }
-    }
-    
-    /**
-     * Sync the project's branches and commits to the Git repository
-     */
-    private void syncProjectToGit(Git git, Project project) {
-        try {
-            // Get all branches from the project
-            List<Branch> branches = project.getBranches();
-            
-            for (Branch branch : branches) {
-                String branchName = branch.getName();
-                
-                // Check if branch exists in Git repository
-                boolean branchExists = branchExists(git.getRepository(), branchName);
-                
-                // If branch doesn't exist, create it
-                if (!branchExists) {
-                    // Create a new branch
-                    git.checkout()
-                       .setCreateBranch(true)
-                       .setName(branchName)
-                       .call();
-                    
-                    // Add branch's commits
-                    List<Commit> commits = versionControlService.getCommitHistory(branch);
-                    for (Commit commit : commits) {
-                        addCommitToGit(git, commit);
-                    }
-                }
-            }
-        } catch (Exception e) {
-            logger.error("Error syncing project to Git: ", e);
-        }
+        return mergeabilityService.isMergeable(pullRequest);
     }
     
-    /**
-     * Sync the branches from a pull request to Git
-     */
-    private void syncBranchesToGit(Git git, PullRequest pullRequest) {
-        try {
-            Branch sourceBranch = pullRequest.getSourceBranch();
-            Branch targetBranch = pullRequest.getTargetBranch();
-            
-            // Check if source branch exists in Git repository
-            boolean sourceBranchExists = branchExists(git.getRepository(), sourceBranch.getName());
-            if (!sourceBranchExists) {
-                // Create source branch
-                git.checkout()
-                   .setCreateBranch(true)
-                   .setName(sourceBranch.getName())
-                   .call();
-                
-                // Add source branch's commits
-                List<Commit> sourceCommits = versionControlService.getCommitHistory(sourceBranch);
-                for (Commit commit : sourceCommits) {
-                    addCommitToGit(git, commit);
-                }
-            }
-            
-            // Check if target branch exists in Git repository
-            boolean targetBranchExists = branchExists(git.getRepository(), targetBranch.getName());
-            if (!targetBranchExists) {
-                // Create target branch
-                git.checkout()
-                   .setCreateBranch(true)
-                   .setName(targetBranch.getName())
-                   .call();
-                
-                // Add target branch's commits
-                List<Commit> targetCommits = versionControlService.getCommitHistory(targetBranch);
-                for (Commit commit : targetCommits) {
-                    addCommitToGit(git, commit);
-                }
-            }
-        } catch (Exception e) {
-            logger.error("Error syncing branches to Git: ", e);
-        }
-    }
-    
-    /**
-     * Add a commit to the Git repository
-     */
-    private void addCommitToGit(Git git, Commit commit) {
-        try {
-            // Parse file changes from JSON
-            Map<String, String> fileChanges = new HashMap<>();
-            if (commit.getFileChanges() != null && !commit.getFileChanges().isEmpty()) {
-                fileChanges = objectMapper.readValue(
-                    commit.getFileChanges(), 
-                    new TypeReference<HashMap<String, String>>() {}
-                );
-            }
-            
-            // Apply changes to working directory
-            for (Map.Entry<String, String> entry : fileChanges.entrySet()) {
-                String filePath = entry.getKey();
-                String content = entry.getValue();
-                
-                File file = new File(git.getRepository().getWorkTree(), filePath);
-                File parentDir = file.getParentFile();
-                
-                // Create parent directories if they don't exist
-                if (!parentDir.exists()) {
-                    parentDir.mkdirs();
-                }
-                
-                // Write content to file
-                java.nio.file.Files.write(file.toPath(), content.getBytes());
-                
-                // Add file to staging area
-                git.add().addFilepattern(filePath).call();
-            }
-            
-            // Create commit
-            git.commit()
-               .setMessage(commit.getMessage())
-               .setAuthor(commit.getAuthor().getUsername(), commit.getAuthor().getEmail())
-               .call();
-        } catch (Exception e) {
-            logger.error("Error adding commit to Git: ", e);
-        }
+    @Override
+    public MergeCheckResult checkMergeability(PullRequest pullRequest) {
+        logger.debug("Checking mergeability for PR ID: {}", pullRequest.getId());
+        return mergeabilityService.check(pullRequest);
     }
     
-    /**
-     * Check if a branch exists in the Git repository
-     */
-    private boolean branchExists(Repository repository, String branchName) {
-        try {
-            return repository.findRef(branchName) != null;
-        } catch (Exception e) {
-            logger.error("Error checking if branch exists: ", e);
-            return false;
-        }
+    @Override
+    public Map<String, Object> getMergeabilityStatus(PullRequest pullRequest) {
+        return mergeabilityService.getStatus(pullRequest);
     }
     
     @Override
@@ -482,47 +243,27 @@ public class PullRequestServiceImpl implements PullRequestService {
     
     @Override
     public Map<String, Object> getDiffStats(PullRequest pullRequest) {
-        // Calculate diff statistics between source and target branches
-        // For example: lines added, lines removed, files changed
-        
-        Map<String, Object> stats = new HashMap<>();
-        stats.put("filesChanged", getChangedFiles(pullRequest).size());
-        stats.put("additions", 0); // In a real implementation, calculate actual additions
-        stats.put("deletions", 0); // In a real implementation, calculate actual deletions
-        
-        return stats;
+        // Stored per pair of head commits and refreshed in the background when a head moves
+        return pullRequestDiffStatsService.getDiffStats(pullRequest);
     }
     
     @Override
     public List<String> getChangedFiles(PullRequest pullRequest) {
-        // Get list of files that differ between source and target branches
-        // This is a simplified implementation
-        
-        Map<String, String> sourceFiles = versionControlService.getProjectSnapshot(
-            pullRequest.getProject(), pullRequest.getSourceBranch());
-        Map<String, String> targetFiles = versionControlService.getProjectSnapshot(
-            pullRequest.getProject(), pullRequest.getTargetBranch());
-        
-        Set<String> changedFiles = new HashSet<>();
-        
-        // Find files that exist in source but not in target or have different content
-        for (Map.Entry<String, String> entry : sourceFiles.entrySet()) {
-            String filePath = entry.getKey();
-            String sourceContent = entry.getValue();
-            
-            if (!targetFiles.containsKey(filePath) || 
-                !targetFiles.get(filePath).equals(sourceContent)) {
-                changedFiles.add(filePath);
-            }
-        }
-        
-        // Find files that exist in target but not in source
-        for (String filePath : targetFiles.keySet()) {
-            if (!sourceFiles.containsKey(filePath)) {
-                changedFiles.add(filePath);
-            }
-        }
-        
-        return new ArrayList<>(changedFiles);
+        // Files that differ between the target and source branch trees; identical subtrees are skipped by hash
+        return versionControlService.getChangedPaths(pullRequest.getTargetBranch(), pullRequest.getSourceBranch())
+            .stream()
+            .map(PathChange::getPath)
+            .collect(Collectors.toList());
+    }
+    
+    @Override
+    public ChangedFilePage getChangedFilePage(PullRequest pullRequest, String cursor, int limit) {
+        // Read from the stored per-file stats; no file content is loaded
+        return pullRequestDiffStatsService.getFilePage(pullRequest, cursor, limit);
+    }
+    
+    @Override
+    public Optional<FileDiffPage> getFileDiffPage(PullRequest pullRequest, String path, String cursor, int maxLines) {
+        return pullRequestFileDiffService.getFileDiff(pullRequest, path, cursor, maxLines);
     }
 }
\ No newline at end of file
@@ -1,15 +1,25 @@
 package com.codeshare.platform.service.impl;
 
 import java.time.LocalDateTime;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.codeshare.platform.dto.CommitDTO;
+import com.codeshare.platform.dto.PathChange;
+import com.codeshare.platform.exception.ConcurrentUpdateException;
 import com.codeshare.platform.model.Branch;
 import com.codeshare.platform.model.Commit;
 import com.codeshare.platform.model.File;
@@ -20,60 +30,75 @@ import com.codeshare.platform.repository.BranchRepository;
 import com.codeshare.platform.repository.CommitRepository;
 import com.codeshare.platform.repository.FileRepository;
 import com.codeshare.platform.service.ActivityService;
+import com.codeshare.platform.service.BlobStore;
+import com.codeshare.platform.service.BranchHeadService;
+import com.codeshare.platform.service.CommitGraphService;
+import com.codeshare.platform.service.CommitPayloadService;
 import com.codeshare.platform.service.ConcurrencyService;
+import com.codeshare.platform.service.FileVersionIndex;
+import com.codeshare.platform.service.SnapshotCache;
+import com.codeshare.platform.service.ThreeWayMergeService;
+import com.codeshare.platform.service.TreeManifestService;
 import com.codeshare.platform.service.VersionControlService;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 @Service
 public class VersionControlServiceImpl implements VersionControlService {
 
+    private static final Logger logger = LoggerFactory.getLogger(VersionControlServiceImpl.class);
+
+    // Attempts to append a commit before giving up on a branch that keeps moving
+    private static final int MAX_APPEND_ATTEMPTS = 10;
+
     private final BranchRepository branchRepository;
     private final CommitRepository commitRepository;
     private final FileRepository fileRepository;
-    private final ObjectMapper objectMapper;
+    private final CommitPayloadService commitPayloadService;
+    private final BlobStore blobStore;
+    private final SnapshotCache snapshotCache;
+    private final FileVersionIndex fileVersionIndex;
+    private final TreeManifestService treeManifestService;
+    private final BranchHeadService branchHeadService;
     private final ConcurrencyService concurrencyService;
+    private final CommitGraphService commitGraphService;
+    private final ThreeWayMergeService threeWayMergeService;
     @Autowired
     private ActivityService activityService;
+    
+    // A full snapshot checkpoint is written every this many commits
+    @Value("${vcs.checkpoint-interval:100}")
+    private int checkpointInterval;
 
     @Autowired
     public VersionControlServiceImpl(
             BranchRepository branchRepository,
             CommitRepository commitRepository,
             FileRepository fileRepository,
-            ObjectMapper objectMapper,
-            ConcurrencyService concurrencyService) {
+            CommitPayloadService commitPayloadService,
+            BlobStore blobStore,
+            SnapshotCache snapshotCache,
+            FileVersionIndex fileVersionIndex,
+            TreeManifestService treeManifestService,
+            BranchHeadService branchHeadService,
+            ConcurrencyService concurrencyService,
+            CommitGraphService commitGraphService,
+            ThreeWayMergeService threeWayMergeService) {
         this.branchRepository = branchRepository;
         this.commitRepository = commitRepository;
         this.fileRepository = fileRepository;
-        this.objectMapper = objectMapper;
+        this.commitPayloadService = commitPayloadService;
+        this.blobStore = blobStore;
+        this.snapshotCache = snapshotCache;
+        this.fileVersionIndex = fileVersionIndex;
+        this.treeManifestService = treeManifestService;
+        this.branchHeadService = branchHeadService;
         this.concurrencyService = concurrencyService;
+        this.commitGraphService = commitGraphService;
+        this.threeWayMergeService = threeWayMergeService;
     }
 
     @Override
     public Commit commitChanges(Branch branch, User author, String message, Map<String, String> fileChanges) {
-        return concurrencyService.executeWithWriteLock(branch.getProject().getId(), () -> {
-            // Find the latest commit in the branch
-            List<Commit> commits = commitRepository.findByBranchOrderByCreatedAtDesc(branch);
-            Commit parentCommit = commits.isEmpty() ? null : commits.get(0);
-    
-            // Create a new commit
-            Commit newCommit = new Commit();
-            newCommit.setBranch(branch);
-            newCommit.setAuthor(author);
-            newCommit.setMessage(message);
-            newCommit.setCreatedAt(LocalDateTime.now());
-            newCommit.setParentCommit(parentCommit);
-    
-            // Serialize file changes to JSON
-            try {
-                newCommit.setFileChanges(objectMapper.writeValueAsString(fileChanges));
-            } catch (JsonProcessingException e) {
-                throw new RuntimeException("Failed to serialize file changes", e);
-            }
-    
-            // IMPORTANT FIX: Don't update file entities directly here
-            // Instead, just ensure the file entries exist in the database
+        // Make sure a file record exists for every path; only this part is serialized per project
+        concurrencyService.executeWithWriteLock(branch.getProject().getId(), () -> {
             for (Map.Entry<String, String> entry : fileChanges.entrySet()) {
                 String filePath = entry.getKey();
                 
@@ -90,22 +115,73 @@ public class VersionControlServiceImpl implements VersionControlService {
                     fileRepository.save(newFile);
                 }
             }
+            return null;
+        });
+        
+        Commit savedCommit = appendCommit(branch, author, message, fileChanges);
+        
+        // Track activity with the correct URL format compatible with your existing commit-details.html
+        activityService.trackActivity(
+            author,
+            UserActivity.ActivityType.COMMIT_PUSHED,
+            "Pushed commit: " + message,
+            savedCommit.getId(),
+            "/commit-details.html?id=" + savedCommit.getId() + "&projectId=" + branch.getProject().getId(),
+            "branch: " + branch.getName() + ", files: " + fileChanges.size()
+        );
+        
+        return savedCommit;
+    }
     
-            // Save the commit
-            Commit savedCommit = commitRepository.save(newCommit);
+    /**
+     * Append a commit with the given file changes to the head of a branch.
+     * The head is moved with compare-and-set; if another commit landed first,
+     * the commit is rebuilt on top of the new head and appended again.
+     */
+    private Commit appendCommit(Branch branch, User author, String message, Map<String, String> fileChanges) {
+        return appendCommit(branch, author, message, null, parentCommit -> fileChanges);
+    }
+    
+    /**
+     * Append a commit whose file changes depend on the head it is built on.
+     * changesOnParent is called again with the new head whenever the head moved before the commit landed.
+     */
+    private Commit appendCommit(Branch branch, User author, String message, Commit mergeParent,
+                                Function<Commit, Map<String, String>> changesOnParent) {
+        for (int attempt = 1; ; attempt++) {
+            BranchRepository.HeadState head = branchHeadService.readHead(branch);
+            Commit parentCommit = branchHeadService.getHeadCommit(branch, head).orElse(null);
+            Map<String, String> fileChanges = changesOnParent.apply(parentCommit);
             
-            // Track activity with the correct URL format compatible with your existing commit-details.html
-            activityService.trackActivity(
-                author,
-                UserActivity.ActivityType.COMMIT_PUSHED,
-                "Pushed commit: " + message,
-                savedCommit.getId(),
-                "/commit-details.html?id=" + savedCommit.getId() + "&projectId=" + branch.getProject().getId(),
-                "branch: " + branch.getName() + ", files: " + fileChanges.size()
-            );
+            Commit newCommit = new Commit();
+            newCommit.setBranch(branch);
+            newCommit.setAuthor(author);
+            newCommit.setMessage(message);
+            newCommit.setCreatedAt(LocalDateTime.now());
+            newCommit.setParentCommit(parentCommit);
+            newCommit.setMergeParentCommit(mergeParent);
+            newCommit.setDepth(depthAfter(parentCommit));
+            
+            // Store file contents as blobs (based on the previous versions); blobs and trees are
+            // content-addressed, so the ones written by a losing attempt are simply reused or left unreferenced
+            Map<String, String> parentRefs = parentCommit == null ? Map.of() : getSnapshotRefs(parentCommit);
+            Map<String, String> blobRefs = commitPayloadService.storeFileChanges(fileChanges, parentRefs);
+            Map<String, String> snapshotRefs = snapshotAfter(parentCommit, blobRefs);
+            newCommit.setTreeHash(treeManifestService.writeTree(snapshotRefs));
             
+            Commit savedCommit;
+            try {
+                savedCommit = branchHeadService.append(newCommit, blobRefs, branchHeadService.versionOf(head));
+            } catch (ConcurrentUpdateException e) {
+                if (attempt >= MAX_APPEND_ATTEMPTS) {
+                    throw e;
+                }
+                continue;
+            }
+            
+            recordSnapshot(savedCommit, blobRefs, snapshotRefs);
             return savedCommit;
-        });
+        }
     }
     @Override
     public Branch createBranch(Project project, String branchName, User creator) {
@@ -146,87 +222,81 @@ public class VersionControlServiceImpl implements VersionControlService {
 
     @Override
     public void mergeBranches(Branch sourceBranch, Branch targetBranch, User merger) {
-        concurrencyService.executeWithWriteLock(sourceBranch.getProject().getId(), () -> {
-            // Get latest commits from source branch
-            List<Commit> sourceCommits = commitRepository.findByBranchOrderByCreatedAtDesc(sourceBranch);
-            if (sourceCommits.isEmpty()) {
-                throw new RuntimeException("Source branch has no commits to merge");
-            }
-
-            // Get the latest source branch state
-            Map<String, String> sourceSnapshot = getSnapshotFromBranch(sourceBranch);
-            
-            // Create a merge commit on the target branch
-            Commit mergeCommit = new Commit();
-            mergeCommit.setBranch(targetBranch);
-            mergeCommit.setAuthor(merger);
-            mergeCommit.setMessage("Merge branch '" + sourceBranch.getName() + "' into " + targetBranch.getName());
-            mergeCommit.setCreatedAt(LocalDateTime.now());
-            
-            // Get parent commit from target branch
-            Optional<Commit> latestTargetCommit = commitRepository.findFirstByBranchOrderByCreatedAtDesc(targetBranch);
-            if (latestTargetCommit.isPresent()) {
-                mergeCommit.setParentCommit(latestTargetCommit.get());
-            }
-
-            try {
-                // Store the source branch snapshot as the merge commit's file changes
-                mergeCommit.setFileChanges(objectMapper.writeValueAsString(sourceSnapshot));
-            } catch (JsonProcessingException e) {
-                throw new RuntimeException("Failed to serialize file changes for merge", e);
-            }
-
-            commitRepository.save(mergeCommit);
-            return null;
-        });
-                // Track activity
-                activityService.trackActivity(
-                    merger,
-                    UserActivity.ActivityType.PULL_REQUEST_MERGED,
-                    "Merged branch " + sourceBranch.getName() + " into " + targetBranch.getName(),
-                    sourceBranch.getProject().getId(),
-                    "/project.html?id=" + sourceBranch.getProject().getId(),
-                    "source: " + sourceBranch.getName() + ", target: " + targetBranch.getName()
-                );
+        // Make sure the source branch has commits
+        Optional<Commit> sourceHead = branchHeadService.getHeadCommit(sourceBranch);
+        if (!sourceHead.isPresent()) {
+            throw new RuntimeException("Source branch has no commits to merge");
+        }
+        Commit theirs = sourceHead.get();
+        
+        Optional<Commit> targetHead = branchHeadService.getHeadCommit(targetBranch);
+        if (targetHead.isPresent() && commitGraphService.isAncestor(theirs, targetHead.get())) {
+            logger.debug("Branch {} already contains {}", targetBranch.getName(), sourceBranch.getName());
+            return;
+        }
+        
+        // The merge commit only carries the paths the source changed since the merge base, and conflicts
+        // abort the merge. Branches start without commits, so the first merge between two branches finds
+        // no merge base; then the source versions of its paths win, as before three-way merges.
+        Map<Long, String> backfill = new HashMap<>();
+        String theirsTreeHash = getTreeHash(theirs, backfill);
+        try {
+            appendCommit(targetBranch, merger,
+                    "Merge branch '" + sourceBranch.getName() + "' into " + targetBranch.getName(),
+                    theirs,
+                    ours -> {
+                        // A target head the source already contains is fast-forwarded: its own tree is the base
+                        if (ours == null || commitGraphService.isAncestor(ours, theirs)) {
+                            return threeWayMergeService.merge(getTreeHash(ours, backfill), getTreeHash(ours, backfill), theirsTreeHash);
+                        }
+                        Optional<Commit> base = commitGraphService.findMergeBase(ours, theirs);
+                        if (base.isEmpty()) {
+                            return threeWayMergeService.mergeUnrelated(getTreeHash(ours, backfill), theirsTreeHash);
+                        }
+                        return threeWayMergeService.merge(getTreeHash(base.get(), backfill), getTreeHash(ours, backfill), theirsTreeHash);
+                    });
+        } finally {
+            backfillTreeHashes(backfill);
+        }
+        
+        // Track activity
+        activityService.trackActivity(
+            merger,
+            UserActivity.ActivityType.PULL_REQUEST_MERGED,
+            "Merged branch " + sourceBranch.getName() + " into " + targetBranch.getName(),
+            sourceBranch.getProject().getId(),
+            "/project.html?id=" + sourceBranch.getProject().getId(),
+            "source: " + sourceBranch.getName() + ", target: " + targetBranch.getName()
+        );
     }
 
     @Override
     public String getFileContent(File file, Branch branch) {
-        return concurrencyService.executeWithReadLock(file.getProject().getId(), () -> {
+        return concurrencyService.executeWithOptimisticRead(file.getProject().getId(), () -> {
             // Get the latest commit for this branch
-            Optional<Commit> latestCommit = commitRepository.findFirstByBranchOrderByCreatedAtDesc(branch);
+            Optional<Commit> latestCommit = branchHeadService.getHeadCommit(branch);
             if (!latestCommit.isPresent()) {
                 return file.getContent(); // Return base content if no commits
             }
             
-            // Traverse commit history to find the latest version of this file
-            return findLatestFileContent(file.getPath(), latestCommit.get());
+            // Single indexed lookup when the branch index is at the head commit
+            if (fileVersionIndex.isCurrent(branch, latestCommit.get())) {
+                return fileVersionIndex.findBlobHash(branch, file.getPath())
+                        .map(blobStore::get)
+                        .orElse(null);
+            }
+            
+            // Otherwise look the file up in the branch snapshot and bring the index up to date;
+            // rebuild is a no-op unless the commit is still the head and not yet indexed
+            Map<String, String> snapshotRefs = getSnapshotRefs(latestCommit.get());
+            fileVersionIndex.rebuild(branch, latestCommit.get(), snapshotRefs);
+            return blobStore.get(snapshotRefs.get(file.getPath()));
         });
     }
-    
-    /**
-     * Helper method to find the latest content of a file by traversing commit history
-     */
-    private String findLatestFileContent(String filePath, Commit commit) {
-        Map<String, String> changes = parseFileChanges(commit.getFileChanges());
-        
-        // Check if this commit contains the file
-        if (changes.containsKey(filePath)) {
-            return changes.get(filePath);
-        }
-        
-        // Check parent commit if this commit doesn't have the file
-        if (commit.getParentCommit() != null) {
-            return findLatestFileContent(filePath, commit.getParentCommit());
-        }
-        
-        // File not found in commit history
-        return null;
-    }
 
     @Override
     public Map<String, String> getProjectSnapshot(Project project, Branch branch) {
-        return concurrencyService.executeWithReadLock(project.getId(), () -> {
+        return concurrencyService.executeWithOptimisticRead(project.getId(), () -> {
             return getSnapshotFromBranch(branch);
         });
     }
@@ -239,47 +309,156 @@ public class VersionControlServiceImpl implements VersionControlService {
         Map<String, String> snapshot = new HashMap<>();
         
         // Find the latest commit for this branch
-        Optional<Commit> latestCommitOpt = commitRepository.findFirstByBranchOrderByCreatedAtDesc(branch);
+        Optional<Commit> latestCommitOpt = branchHeadService.getHeadCommit(branch);
         if (!latestCommitOpt.isPresent()) {
             return snapshot; // Empty snapshot if no commits
         }
         
-        // Traverse the commit history to build the snapshot
-        buildSnapshotFromCommitHistory(snapshot, latestCommitOpt.get());
+        // Resolve the blob references of the snapshot to file contents
+        Map<String, String> snapshotRefs = fileVersionIndex.isCurrent(branch, latestCommitOpt.get())
+                ? fileVersionIndex.getSnapshotRefs(branch)
+                : getSnapshotRefs(latestCommitOpt.get());
+        Map<String, String> contentByHash = blobStore.getAll(snapshotRefs.values());
+        for (Map.Entry<String, String> entry : snapshotRefs.entrySet()) {
+            snapshot.put(entry.getKey(), contentByHash.get(entry.getValue()));
+        }
         
         return snapshot;
     }
     
     /**
-     * Recursively build a snapshot by traversing commit history
+     * Get the path -> blob hash snapshot as of a commit.
+     * Walks back only until the nearest cached snapshot or checkpoint, then applies the newer commits
+     * on top of it, so the cost of a cold read is bounded by the checkpoint interval.
      */
-    private void buildSnapshotFromCommitHistory(Map<String, String> snapshot, Commit commit) {
-        // First apply parent commit changes (older changes first)
-        if (commit.getParentCommit() != null) {
-            buildSnapshotFromCommitHistory(snapshot, commit.getParentCommit());
+    private Map<String, String> getSnapshotRefs(Commit commit) {
+        Map<String, String> cached = snapshotCache.get(commit.getId());
+        if (cached != null) {
+            return cached;
         }
         
-        // Then apply this commit's changes (newer changes override older ones)
-        Map<String, String> commitChanges = parseFileChanges(commit.getFileChanges());
-        snapshot.putAll(commitChanges);
+        // Collect commits newer than the nearest cached snapshot, checkpoint or root commit
+        Set<Long> checkpointIds = commitPayloadService.findCheckpointCommitIds(commit.getBranch());
+        Deque<Commit> pending = new ArrayDeque<>();
+        Map<String, String> base = null;
+        Commit current = commit;
+        while (current != null && base == null) {
+            base = snapshotCache.get(current.getId());
+            if (base == null && checkpointIds.contains(current.getId())) {
+                base = commitPayloadService.readCheckpoint(current.getId());
+            }
+            if (base == null) {
+                pending.push(current);
+                current = current.getParentCommit();
+            }
+        }
+        
+        // Apply older changes first so newer changes override them
+        int replayed = pending.size();
+        Map<Long, Map<String, String>> changesByCommit = commitPayloadService.readBlobRefs(pending);
+        Map<String, String> snapshotRefs = base == null ? new HashMap<>() : new HashMap<>(base);
+        while (!pending.isEmpty()) {
+            snapshotRefs.putAll(changesByCommit.get(pending.pop().getId()));
+        }
+        
+        // History written before checkpoints existed gets one here, so the next cold read stops early
+        if (replayed >= checkpointInterval && !checkpointIds.contains(commit.getId())) {
+            commitPayloadService.writeCheckpoint(commit, snapshotRefs);
+        }
+        
+        return snapshotCache.put(commit.getId(), snapshotRefs);
+    }
+    
+    /**
+     * Build the snapshot of a new commit from its parent snapshot and its own changes
+     */
+    private Map<String, String> snapshotAfter(Commit parent, Map<String, String> blobRefs) {
+        Map<String, String> snapshotRefs = parent == null
+                ? new HashMap<>()
+                : new HashMap<>(getSnapshotRefs(parent));
+        snapshotRefs.putAll(blobRefs);
+        return snapshotRefs;
+    }
+    
+    /**
+     * Cache the snapshot of a newly saved commit, move the branch file index to it,
+     * and write a checkpoint when the commit depth reaches the checkpoint interval
+     */
+    private void recordSnapshot(Commit commit, Map<String, String> blobRefs, Map<String, String> snapshotRefs) {
+        Integer depth = commit.getDepth();
+        if (depth != null && depth > 0 && depth % checkpointInterval == 0) {
+            commitPayloadService.writeCheckpoint(commit, snapshotRefs);
+        }
+        fileVersionIndex.update(commit.getBranch(), commit, blobRefs, snapshotRefs);
+        snapshotCache.put(commit.getId(), snapshotRefs);
+    }
+    
+    /**
+     * Depth of a new commit on top of the given parent.
+     * Parents created before depth was tracked are counted by walking back to the nearest known depth.
+     */
+    private int depthAfter(Commit parent) {
+        int distance = 0;
+        Commit current = parent;
+        while (current != null && current.getDepth() == null) {
+            distance++;
+            current = current.getParentCommit();
+        }
+        return current == null ? distance : current.getDepth() + distance + 1;
+    }
+
+    /**
+     * Root tree hash of the head commit of a branch, or null for a branch without commits
+     */
+    private String getHeadTreeHash(Branch branch, Map<Long, String> backfill) {
+        return getTreeHash(branchHeadService.getHeadCommit(branch).orElse(null), backfill);
+    }
+    
+    /**
+     * Root tree hash of a commit, or null for no commit.
+     * Commits created before tree manifests existed get their tree written on first use. The hash is
+     * only added to backfill here; the caller records it with {@link #backfillTreeHashes} once it is
+     * outside any optimistic read, which may run this more than once.
+     */
+    private String getTreeHash(Commit commit, Map<Long, String> backfill) {
+        if (commit == null) {
+            return null;
+        }
+        if (commit.getTreeHash() == null) {
+            // Only set in memory: the column is not updatable, so the entity is never saved for this
+            commit.setTreeHash(treeManifestService.writeTree(getSnapshotRefs(commit)));
+            backfill.put(commit.getId(), commit.getTreeHash());
+        }
+        return commit.getTreeHash();
+    }
+    
+    private void backfillTreeHashes(Map<Long, String> backfill) {
+        backfill.forEach(commitRepository::backfillTreeHash);
     }
 
     @Override
     public List<Commit> getCommitHistory(Branch branch) {
-        return concurrencyService.executeWithReadLock(branch.getProject().getId(), () -> {
+        return concurrencyService.executeWithOptimisticRead(branch.getProject().getId(), () -> {
             return commitRepository.findByBranchOrderByCreatedAtDesc(branch);
         });
     }
 
+    @Override
+    public List<CommitDTO> getCommitSummaries(Branch branch) {
+        return concurrencyService.executeWithOptimisticRead(branch.getProject().getId(), () -> {
+            return commitRepository.findSummariesByBranch(branch);
+        });
+    }
+
     @Override
     public List<String> getFileHistory(File file, Branch branch) {
-        return concurrencyService.executeWithReadLock(file.getProject().getId(), () -> {
+        return concurrencyService.executeWithOptimisticRead(file.getProject().getId(), () -> {
             List<Commit> commits = commitRepository.findByBranchOrderByCreatedAtDesc(branch);
             List<String> fileHistory = new ArrayList<>();
 
+            Map<Long, Map<String, String>> changesByCommit = commitPayloadService.readBlobRefs(commits);
             for (Commit commit : commits) {
-                Map<String, String> changes = parseFileChanges(commit.getFileChanges());
-                if (changes.containsKey(file.getPath())) {
+                if (changesByCommit.get(commit.getId()).containsKey(file.getPath())) {
                     fileHistory.add(commit.getMessage());
                 }
             }
@@ -289,9 +468,9 @@ public class VersionControlServiceImpl implements VersionControlService {
 
     @Override
     public Map<String, Object> getFileDiff(File file, Commit oldCommit, Commit newCommit) {
-        return concurrencyService.executeWithReadLock(file.getProject().getId(), () -> {
-            Map<String, String> oldChanges = parseFileChanges(oldCommit.getFileChanges());
-            Map<String, String> newChanges = parseFileChanges(newCommit.getFileChanges());
+        return concurrencyService.executeWithOptimisticRead(file.getProject().getId(), () -> {
+            Map<String, String> oldChanges = commitPayloadService.readFileChanges(oldCommit);
+            Map<String, String> newChanges = commitPayloadService.readFileChanges(newCommit);
 
             Map<String, Object> diff = new HashMap<>();
             diff.put("old", oldChanges.get(file.getPath()));
@@ -301,15 +480,13 @@ public class VersionControlServiceImpl implements VersionControlService {
         });
     }
 
-    private Map<String, String> parseFileChanges(String fileChangesJson) {
-        if (fileChangesJson == null || fileChangesJson.isEmpty()) {
-            return new HashMap<>();
-        }
-        
-        try {
-            return objectMapper.readValue(fileChangesJson, new TypeReference<HashMap<String, String>>() {});
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to parse file changes", e);
-        }
+    @Override
+    public List<PathChange> getChangedPaths(Branch oldBranch, Branch newBranch) {
+        Map<Long, String> backfill = new HashMap<>();
+        List<PathChange> changes = concurrencyService.executeWithOptimisticRead(newBranch.getProject().getId(), () -> {
+            return treeManifestService.diff(getHeadTreeHash(oldBranch, backfill), getHeadTreeHash(newBranch, backfill));
+        });
+        backfillTreeHashes(backfill);
+        return changes;
     }
 }
\ No newline at end of file
@@ -0,0 +1,149 @@
+package com.codeshare.platform.util;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Binary delta between two byte arrays, as a sequence of copy-from-base and insert instructions.
+ * Blocks of the base are indexed by hash, so scattered edits in large files still produce small deltas.
+ *
+ * Format: varint base length, varint target length, then instructions:
+ * COPY (varint offset, varint length) or INSERT (varint length, literal bytes).
+ */
+public final class DeltaCodec {
+
+    private static final int BLOCK_SIZE = 16;
+    private static final int COPY = 1;
+    private static final int INSERT = 2;
+
+    private DeltaCodec() {
+    }
+
+    /**
+     * Encode the target as a delta against the base
+     */
+    public static byte[] encode(byte[] base, byte[] target) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeVarint(out, base.length);
+        writeVarint(out, target.length);
+
+        // First occurrence of every aligned block of the base
+        Map<Long, Integer> blocks = new HashMap<>();
+        for (int offset = 0; offset + BLOCK_SIZE <= base.length; offset += BLOCK_SIZE) {
+            blocks.putIfAbsent(blockKey(base, offset), offset);
+        }
+
+        int position = 0;
+        int literalStart = 0;
+        while (position + BLOCK_SIZE <= target.length) {
+            Integer baseOffset = blocks.get(blockKey(target, position));
+            if (baseOffset == null || !regionMatches(base, baseOffset, target, position, BLOCK_SIZE)) {
+                position++;
+                continue;
+            }
+
+            // Extend the match backwards over pending literal bytes and forwards as far as it goes
+            int start = baseOffset;
+            int targetStart = position;
+            while (start > 0 && targetStart > literalStart && base[start - 1] == target[targetStart - 1]) {
+                start--;
+                targetStart--;
+            }
+            int end = baseOffset + BLOCK_SIZE;
+            int targetEnd = position + BLOCK_SIZE;
+            while (end < base.length && targetEnd < target.length && base[end] == target[targetEnd]) {
+                end++;
+                targetEnd++;
+            }
+
+            writeInsert(out, target, literalStart, targetStart);
+            out.write(COPY);
+            writeVarint(out, start);
+            writeVarint(out, end - start);
+
+            position = targetEnd;
+            literalStart = targetEnd;
+        }
+        writeInsert(out, target, literalStart, target.length);
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Rebuild the target from the base and a delta produced by {@link #encode}
+     */
+    public static byte[] apply(byte[] base, byte[] delta) {
+        int[] cursor = {0};
+        int baseLength = readVarint(delta, cursor);
+        int targetLength = readVarint(delta, cursor);
+        if (baseLength != base.length) {
+            throw new IllegalArgumentException("Delta base length mismatch: expected " + baseLength + ", got " + base.length);
+        }
+
+        byte[] target = new byte[targetLength];
+        int position = 0;
+        while (cursor[0] < delta.length) {
+            int op = delta[cursor[0]++];
+            if (op == COPY) {
+                int offset = readVarint(delta, cursor);
+                int length = readVarint(delta, cursor);
+                System.arraycopy(base, offset, target, position, length);
+                position += length;
+            } else if (op == INSERT) {
+                int length = readVarint(delta, cursor);
+                System.arraycopy(delta, cursor[0], target, position, length);
+                cursor[0] += length;
+                position += length;
+            } else {
+                throw new IllegalArgumentException("Unknown delta instruction: " + op);
+            }
+        }
+
+        if (position != targetLength) {
+            throw new IllegalArgumentException("Delta produced " + position + " bytes, expected " + targetLength);
+        }
+        return target;
+    }
+
+    private static void writeInsert(ByteArrayOutputStream out, byte[] target, int from, int to) {
+        if (to > from) {
+            out.write(INSERT);
+            writeVarint(out, to - from);
+            out.write(target, from, to - from);
+        }
+    }
+
+    private static long blockKey(byte[] data, int offset) {
+        long hash = 1125899906842597L;
+        for (int i = offset; i < offset + BLOCK_SIZE; i++) {
+            hash = 31 * hash + data[i];
+        }
+        return hash;
+    }
+
+    private static boolean regionMatches(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        return Arrays.equals(a, aOffset, aOffset + length, b, bOffset, bOffset + length);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(byte[] data, int[] cursor) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[cursor[0]++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
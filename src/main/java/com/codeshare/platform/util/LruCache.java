@@ -0,0 +1,114 @@
+package com.codeshare.platform.util;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Thread-safe least-recently-used cache bounded by total weight
+ * (entry count, bytes, paths... whatever the weigher measures)
+ */
+public class LruCache<K, V> {
+
+    /**
+     * Computes the weight of a cache entry
+     */
+    @FunctionalInterface
+    public interface Weigher<K, V> {
+        long weigh(K key, V value);
+    }
+
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<K, Long> weights = new HashMap<>();
+    private final long maxWeight;
+    private final Weigher<K, V> weigher;
+
+    private long totalWeight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public LruCache(long maxWeight, Weigher<K, V> weigher) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    /**
+     * Get a cached value and mark it as recently used
+     * @return the value, or null if not cached
+     */
+    public synchronized V get(K key) {
+        V value = entries.get(key);
+        if (value == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return value;
+    }
+
+    /**
+     * Add or replace a value, evicting least recently used entries as needed.
+     * Values heavier than the whole cache are not stored.
+     */
+    public synchronized void put(K key, V value) {
+        long weight = weigher.weigh(key, value);
+        remove(key);
+        if (weight > maxWeight) {
+            return;
+        }
+
+        entries.put(key, value);
+        weights.put(key, weight);
+        totalWeight += weight;
+
+        Iterator<K> eldest = entries.keySet().iterator();
+        while (totalWeight > maxWeight && eldest.hasNext()) {
+            K eldestKey = eldest.next();
+            eldest.remove();
+            totalWeight -= weights.remove(eldestKey);
+            evictions++;
+        }
+    }
+
+    public synchronized void remove(K key) {
+        if (entries.remove(key) != null) {
+            totalWeight -= weights.remove(key);
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        weights.clear();
+        totalWeight = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Copy of the cached entries, from least to most recently used
+     */
+    public synchronized Map<K, V> snapshot() {
+        return new LinkedHashMap<>(entries);
+    }
+
+    /**
+     * Snapshot of the cache statistics
+     */
+    public synchronized Map<String, Object> getStats() {
+        long requests = hits + misses;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", entries.size());
+        stats.put("weight", totalWeight);
+        stats.put("maxWeight", maxWeight);
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRatio", requests == 0 ? 0.0 : (double) hits / requests);
+        stats.put("evictions", evictions);
+        return stats;
+    }
+}
@@ -0,0 +1,221 @@
+package com.codeshare.platform.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.codeshare.platform.model.Branch;
+import com.codeshare.platform.model.Commit;
+import com.codeshare.platform.model.Project;
+import com.codeshare.platform.repository.CommitRepository;
+
+class CommitGraphServiceTest {
+
+    private static final long PROJECT_ID = 7L;
+
+    private final Map<Long, Commit> commits = new HashMap<>();
+    // Commits the repository returns, in insertion order; the query itself orders by id
+    private final List<Edge> visibleEdges = new ArrayList<>();
+    private Branch branch;
+    private CommitRepository commitRepository;
+    private CommitGraphService commitGraphService;
+
+    @BeforeEach
+    void setUp() {
+        Project project = new Project();
+        project.setId(PROJECT_ID);
+        branch = new Branch();
+        branch.setId(1L);
+        branch.setProject(project);
+
+        commitRepository = mock(CommitRepository.class);
+        when(commitRepository.findGraphEdges(eq(PROJECT_ID), anyLong())).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(1);
+            List<CommitRepository.GraphEdge> edges = new ArrayList<>();
+            for (Edge edge : visibleEdges) {
+                if (edge.getId() > afterId) {
+                    edges.add(edge);
+                }
+            }
+            edges.sort((a, b) -> Long.compare(a.getId(), b.getId()));
+            return edges;
+        });
+        when(commitRepository.findById(anyLong()))
+                .thenAnswer(invocation -> Optional.ofNullable(commits.get(invocation.<Long>getArgument(0))));
+        commitGraphService = new CommitGraphService(commitRepository, 10);
+    }
+
+    @Test
+    void findsTheForkPointOfDivergedBranches() {
+        // 1 - 2 - 3 - 4
+        //      \
+        //       5 - 6
+        commit(1, null, null);
+        commit(2, 1L, null);
+        commit(3, 2L, null);
+        commit(4, 3L, null);
+        commit(5, 2L, null);
+        commit(6, 5L, null);
+
+        assertEquals(Optional.of(commits.get(2L)), commitGraphService.findMergeBase(commits.get(4L), commits.get(6L)));
+        assertEquals(Optional.of(commits.get(2L)), commitGraphService.findMergeBase(commits.get(6L), commits.get(4L)));
+        assertEquals(Optional.of(commits.get(4L)), commitGraphService.findMergeBase(commits.get(4L), commits.get(4L)));
+        assertEquals(Optional.of(commits.get(3L)), commitGraphService.findMergeBase(commits.get(3L), commits.get(4L)));
+    }
+
+    @Test
+    void returnsNoMergeBaseForUnrelatedHistories() {
+        commit(1, null, null);
+        commit(2, 1L, null);
+        commit(3, null, null);
+
+        assertEquals(Optional.empty(), commitGraphService.findMergeBase(commits.get(2L), commits.get(3L)));
+    }
+
+    @Test
+    void followsFirstAndMergeParentsForAncestry() {
+        // 1 - 2 - 3 - 4 - 7
+        //      \         /
+        //       5 - 6 --'
+        commit(1, null, null);
+        commit(2, 1L, null);
+        commit(3, 2L, null);
+        commit(4, 3L, null);
+        commit(5, 2L, null);
+        commit(6, 5L, null);
+        commit(7, 4L, 6L);
+
+        assertTrue(commitGraphService.isAncestor(commits.get(2L), commits.get(6L)));
+        assertTrue(commitGraphService.isAncestor(commits.get(6L), commits.get(6L)));
+        assertFalse(commitGraphService.isAncestor(commits.get(3L), commits.get(6L)));
+        assertFalse(commitGraphService.isAncestor(commits.get(6L), commits.get(2L)));
+        assertTrue(commitGraphService.isAncestor(commits.get(5L), commits.get(7L)));
+        assertTrue(commitGraphService.isAncestor(commits.get(3L), commits.get(7L)));
+
+        // Merging the source again is a fast-forward from its point of view
+        assertEquals(Optional.of(commits.get(6L)), commitGraphService.findMergeBase(commits.get(7L), commits.get(6L)));
+    }
+
+    @Test
+    void listsCommitsReachableOnlyFromTheHead() {
+        // 1 - 2 - 3 - 4 - 7
+        //      \         /
+        //       5 - 6 --'
+        commit(1, null, null);
+        commit(2, 1L, null);
+        commit(3, 2L, null);
+        commit(4, 3L, null);
+        commit(5, 2L, null);
+        commit(6, 5L, null);
+        commit(7, 4L, 6L);
+
+        assertEquals(List.of(6L, 5L), commitGraphService.findCommitIdsNotIn(commits.get(6L), commits.get(4L)));
+        assertEquals(List.of(4L, 3L), commitGraphService.findCommitIdsNotIn(commits.get(4L), commits.get(6L)));
+        assertEquals(List.of(7L, 6L, 5L), commitGraphService.findCommitIdsNotIn(commits.get(7L), commits.get(4L)));
+        assertEquals(List.of(), commitGraphService.findCommitIdsNotIn(commits.get(6L), commits.get(7L)));
+        assertEquals(List.of(4L, 3L, 2L, 1L), commitGraphService.findCommitIdsNotIn(commits.get(4L), null));
+    }
+
+    @Test
+    void picksOneOfTheBestMergeBasesOfACrissCrossMerge() {
+        //   2 ---- 4      4 merges 3 into 2
+        //  /  \  /
+        // 1    \/
+        //  \   /\
+        //   3 ---- 5      5 merges 2 into 3
+        commit(1, null, null);
+        commit(2, 1L, null);
+        commit(3, 1L, null);
+        commit(4, 2L, 3L);
+        commit(5, 3L, 2L);
+
+        Commit base = commitGraphService.findMergeBase(commits.get(4L), commits.get(5L)).orElseThrow();
+
+        assertTrue(base.getId() == 2L || base.getId() == 3L, "merge base was " + base.getId());
+        assertTrue(commitGraphService.isAncestor(base, commits.get(4L)));
+        assertTrue(commitGraphService.isAncestor(base, commits.get(5L)));
+    }
+
+    @Test
+    void extendsTheLoadedGraphWithNewerCommits() {
+        commit(1, null, null);
+        commit(2, 1L, null);
+        assertTrue(commitGraphService.isAncestor(commits.get(1L), commits.get(2L)));
+
+        commit(3, 2L, null);
+        assertTrue(commitGraphService.isAncestor(commits.get(1L), commits.get(3L)));
+
+        verify(commitRepository).findGraphEdges(PROJECT_ID, 0L);
+        verify(commitRepository).findGraphEdges(PROJECT_ID, 2L);
+    }
+
+    @Test
+    void reloadsTheGraphWhenACommitWithALowerIdBecomesVisibleLate() {
+        commit(1, null, null);
+        commit(2, 1L, null);
+        commit(4, 2L, null);
+        assertTrue(commitGraphService.isAncestor(commits.get(1L), commits.get(4L)));
+
+        // 3 committed after 4 was loaded, and 5 builds on it
+        commit(3, 2L, null);
+        commit(5, 3L, null);
+
+        assertEquals(Optional.of(commits.get(2L)), commitGraphService.findMergeBase(commits.get(4L), commits.get(5L)));
+        assertTrue(commitGraphService.isAncestor(commits.get(3L), commits.get(5L)));
+        assertEquals(List.of(5L, 3L), commitGraphService.findCommitIdsNotIn(commits.get(5L), commits.get(4L)));
+        verify(commitRepository, times(2)).findGraphEdges(PROJECT_ID, 0L);
+    }
+
+    private Commit commit(long id, Long parentId, Long mergeParentId) {
+        Commit commit = new Commit();
+        commit.setId(id);
+        commit.setBranch(branch);
+        commit.setParentCommit(parentId == null ? null : commits.get(parentId));
+        commit.setMergeParentCommit(mergeParentId == null ? null : commits.get(mergeParentId));
+        commits.put(id, commit);
+        visibleEdges.add(new Edge(id, parentId, mergeParentId));
+        return commit;
+    }
+
+    private static final class Edge implements CommitRepository.GraphEdge {
+        private final Long id;
+        private final Long parentId;
+        private final Long mergeParentId;
+
+        Edge(Long id, Long parentId, Long mergeParentId) {
+            this.id = id;
+            this.parentId = parentId;
+            this.mergeParentId = mergeParentId;
+        }
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public Long getParentId() {
+            return parentId;
+        }
+
+        @Override
+        public Long getMergeParentId() {
+            return mergeParentId;
+        }
+    }
+}
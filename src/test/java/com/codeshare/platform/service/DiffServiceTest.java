@@ -0,0 +1,155 @@
+package com.codeshare.platform.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.codeshare.platform.dto.FileDiff;
+
+class DiffServiceTest {
+
+    private final DiffService diffService = newDiffService(3);
+
+    @Test
+    void reportsNoHunksForEqualContent() {
+        FileDiff diff = diffService.diff("a\nb\n", "a\nb");
+
+        assertTrue(diff.getHunks().isEmpty());
+        assertEquals("", diffService.formatUnified(diff));
+    }
+
+    @Test
+    void startsAnEmptyOldRangeAtTheLineBeforeIt() {
+        FileDiff created = diffService.diff(null, "a\nb\n");
+        assertEquals("@@ -0,0 +1,2 @@\n+ a\n+ b\n", diffService.formatUnified(created));
+
+        FileDiff deleted = diffService.diff("a\nb\n", null);
+        assertEquals("@@ -1,2 +0,0 @@\n- a\n- b\n", diffService.formatUnified(deleted));
+    }
+
+    @Test
+    void startsAnEmptyRangeWithoutContextAtTheLineBeforeIt() {
+        DiffService withoutContext = newDiffService(0);
+
+        FileDiff inserted = withoutContext.diff("a\nb\nc\nd\n", "a\nb\nX\nc\nd\n");
+        assertEquals("@@ -2,0 +3,1 @@\n+ X\n", withoutContext.formatUnified(inserted));
+
+        FileDiff removed = withoutContext.diff("a\nb\nX\nc\nd\n", "a\nb\nc\nd\n");
+        assertEquals("@@ -3,1 +2,0 @@\n- X\n", withoutContext.formatUnified(removed));
+    }
+
+    @Test
+    void surroundsAChangeWithContextClippedAtTheFileEdges() {
+        FileDiff diff = diffService.diff(lines(1, 10, -1), lines(1, 10, 2));
+
+        assertEquals(1, diff.getHunks().size());
+        FileDiff.Hunk hunk = diff.getHunks().get(0);
+        assertEquals(1, hunk.getOldStart());
+        assertEquals(5, hunk.getOldLines());
+        assertEquals(1, hunk.getNewStart());
+        assertEquals(5, hunk.getNewLines());
+        assertEquals(List.of("  line 1", "- line 2", "+ changed 2", "  line 3", "  line 4", "  line 5"), hunk.getLines());
+        assertEquals(1, diff.getAdditions());
+        assertEquals(1, diff.getDeletions());
+        assertTrue(diff.isExact());
+    }
+
+    @Test
+    void mergesChangesWhoseContextOverlaps() {
+        // Changes at lines 5 and 11 are 5 lines apart, within twice the context
+        FileDiff diff = diffService.diff(lines(1, 20, -1), lines(1, 20, 5, 11));
+
+        assertEquals(1, diff.getHunks().size());
+        FileDiff.Hunk hunk = diff.getHunks().get(0);
+        assertEquals(2, hunk.getOldStart());
+        assertEquals(13, hunk.getOldLines());
+        assertEquals(2, hunk.getNewStart());
+        assertEquals(13, hunk.getNewLines());
+        assertEquals(15, hunk.getLines().size());
+        assertEquals("  line 10", hunk.getLines().get(9));
+        assertEquals(2, diff.getAdditions());
+        assertEquals(2, diff.getDeletions());
+    }
+
+    @Test
+    void mergesChangesWhoseContextJustTouches() {
+        // Six unchanged lines between the changes: the two contexts meet without a gap
+        FileDiff diff = diffService.diff(lines(1, 20, -1), lines(1, 20, 5, 12));
+
+        assertEquals(1, diff.getHunks().size());
+        assertEquals(14, diff.getHunks().get(0).getOldLines());
+    }
+
+    @Test
+    void splitsChangesWhoseContextDoesNotOverlap() {
+        FileDiff diff = diffService.diff(lines(1, 20, -1), lines(1, 20, 5, 13));
+
+        assertEquals(2, diff.getHunks().size());
+        FileDiff.Hunk first = diff.getHunks().get(0);
+        FileDiff.Hunk second = diff.getHunks().get(1);
+        assertEquals(2, first.getOldStart());
+        assertEquals(7, first.getOldLines());
+        assertEquals(10, second.getOldStart());
+        assertEquals(7, second.getOldLines());
+        assertEquals("  line 10", second.getLines().get(0));
+    }
+
+    @Test
+    void reportsAFileOverTheLineBudgetAsReplaced() {
+        DiffService smallBudget = new DiffService(DiffService.Algorithm.HISTOGRAM, 3, 10, 2000, 1 << 20, 0);
+
+        FileDiff diff = smallBudget.diff(lines(1, 8, -1), lines(1, 8, 4));
+
+        assertFalse(diff.isExact());
+        assertEquals(8, diff.getAdditions());
+        assertEquals(8, diff.getDeletions());
+        assertEquals(1, diff.getHunks().size());
+    }
+
+    @Test
+    void givesTheSameResultWithMyers() {
+        String oldContent = lines(1, 20, -1);
+        String newContent = lines(1, 20, 5, 13);
+
+        assertEquals(diffService.formatUnified(diffService.diff(oldContent, newContent)),
+                diffService.formatUnified(diffService.diff(oldContent, newContent, DiffService.Algorithm.MYERS)));
+    }
+
+    @Test
+    void reportsCompletelyDifferentFilesOverTheTimeBudgetAsReplaced() {
+        DiffService tinyTimeout = new DiffService(DiffService.Algorithm.MYERS, 3, 50000, 1, 1 << 20, 0);
+        // No line hashes match, so Myers never needs the lines themselves
+        String oldContent = lines(1, 20000, -1);
+        String newContent = lines(1, 20000, -1).replace("line ", "other ");
+
+        FileDiff diff = tinyTimeout.diff(oldContent, newContent);
+
+        assertFalse(diff.isExact());
+        assertEquals(20000, diff.getAdditions());
+        assertEquals(20000, diff.getDeletions());
+        assertEquals(1L, tinyTimeout.getStats().get("overBudget"));
+    }
+
+    private static DiffService newDiffService(int contextLines) {
+        return new DiffService(DiffService.Algorithm.HISTOGRAM, contextLines, 50000, 2000, 1 << 20, 0);
+    }
+
+    /**
+     * Lines "line from" to "line to", with the given line numbers replaced by "changed n"
+     */
+    private static String lines(int from, int to, int... changed) {
+        StringBuilder content = new StringBuilder();
+        for (int i = from; i <= to; i++) {
+            boolean isChanged = false;
+            for (int line : changed) {
+                isChanged |= line == i;
+            }
+            content.append(isChanged ? "changed " : "line ").append(i).append('\n');
+        }
+        return content.toString();
+    }
+}
@@ -0,0 +1,195 @@
+package com.codeshare.platform.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.codeshare.platform.dto.FileDiff;
+import com.codeshare.platform.dto.FileDiffPage;
+import com.codeshare.platform.model.PullRequest;
+import com.codeshare.platform.model.PullRequestFileStat;
+
+class PullRequestFileDiffServiceTest {
+
+    private static final String PATH = "src/App.java";
+    private static final String CREATED_PATH = "src/New.java";
+
+    private final PullRequest pullRequest = new PullRequest();
+    private final Map<String, String> contentByHash = new HashMap<>();
+    private PullRequestDiffStatsService pullRequestDiffStatsService;
+    private PullRequestFileDiffService pullRequestFileDiffService;
+
+    @BeforeEach
+    void setUp() {
+        pullRequestDiffStatsService = mock(PullRequestDiffStatsService.class);
+        BlobStore blobStore = mock(BlobStore.class);
+        when(blobStore.getAll(any())).thenReturn(contentByHash);
+        DiffService diffService = new DiffService(DiffService.Algorithm.HISTOGRAM, 3, 50000, 2000, 1 << 20, 0);
+        pullRequestFileDiffService = new PullRequestFileDiffService(pullRequestDiffStatsService, blobStore, diffService);
+
+        // Lines 3, 15 and 27 of 30 change: three hunks of 7, 8 and 8 lines
+        changedFile(PATH, lines(30), lines(30, 3, 15, 27));
+        // A new file of 10 lines: one hunk with an empty old range
+        changedFile(CREATED_PATH, null, lines(10));
+    }
+
+    @Test
+    void returnsTheWholeDiffWhenItFitsOnePage() {
+        FileDiffPage page = page(PATH, null, 100);
+
+        assertEquals(3, page.getHunks().size());
+        assertEquals(List.of(7, 8, 8), hunkSizes(page));
+        assertEquals(3, page.getAdditions());
+        assertEquals(3, page.getDeletions());
+        assertTrue(page.isExact());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void continuesAtTheNextHunkWhenAPageEndsOnAHunkBoundary() {
+        FileDiffPage first = page(PATH, null, 7);
+        assertEquals(List.of(7), hunkSizes(first));
+        assertEquals("1:0", first.getNextCursor());
+
+        FileDiffPage second = page(PATH, first.getNextCursor(), 8);
+        assertEquals(List.of(8), hunkSizes(second));
+        assertEquals(12, second.getHunks().get(0).getOldStart());
+        assertEquals("2:0", second.getNextCursor());
+
+        FileDiffPage last = page(PATH, second.getNextCursor(), 8);
+        assertEquals(List.of(8), hunkSizes(last));
+        assertNull(last.getNextCursor());
+    }
+
+    @Test
+    void splitsAHunkWithLineNumbersOfTheSlice() {
+        FileDiffPage first = page(PATH, null, 5);
+        FileDiff.Hunk head = first.getHunks().get(0);
+        assertEquals(List.of("  line 1", "  line 2", "- line 3", "+ changed 3", "  line 4"), head.getLines());
+        assertHeader(head, 1, 4, 1, 4);
+        assertEquals("0:5", first.getNextCursor());
+
+        // The rest of the first hunk, then the start of the second one
+        FileDiffPage second = page(PATH, first.getNextCursor(), 5);
+        assertEquals(2, second.getHunks().size());
+        FileDiff.Hunk tail = second.getHunks().get(0);
+        assertEquals(List.of("  line 5", "  line 6"), tail.getLines());
+        assertHeader(tail, 5, 2, 5, 2);
+        FileDiff.Hunk next = second.getHunks().get(1);
+        assertEquals(List.of("  line 12", "  line 13", "  line 14"), next.getLines());
+        assertHeader(next, 12, 3, 12, 3);
+        assertEquals("1:3", second.getNextCursor());
+    }
+
+    @Test
+    void keepsTheEmptyRangeConventionInSlicesOfAnInsertion() {
+        FileDiffPage first = page(CREATED_PATH, null, 4);
+        assertHeader(first.getHunks().get(0), 0, 0, 1, 4);
+        assertEquals("0:4", first.getNextCursor());
+
+        FileDiffPage second = page(CREATED_PATH, first.getNextCursor(), 4);
+        assertHeader(second.getHunks().get(0), 0, 0, 5, 4);
+        assertEquals("0:8", second.getNextCursor());
+
+        FileDiffPage last = page(CREATED_PATH, second.getNextCursor(), 4);
+        assertHeader(last.getHunks().get(0), 0, 0, 9, 2);
+        assertNull(last.getNextCursor());
+    }
+
+    @Test
+    void pagesThroughEveryLineExactlyOnce() {
+        List<String> all = new ArrayList<>();
+        for (FileDiff.Hunk hunk : page(PATH, null, 100).getHunks()) {
+            all.addAll(hunk.getLines());
+        }
+
+        List<String> paged = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            FileDiffPage page = page(PATH, cursor, 3);
+            for (FileDiff.Hunk hunk : page.getHunks()) {
+                paged.addAll(hunk.getLines());
+            }
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(all, paged);
+        assertEquals(8, pages);
+    }
+
+    @Test
+    void rejectsMalformedCursors() {
+        for (String cursor : List.of("x", "1", "1:2:3", "-1:0", "0:-1", "a:b", "0:7")) {
+            assertThrows(IllegalArgumentException.class, () -> page(PATH, cursor, 10), cursor);
+        }
+    }
+
+    @Test
+    void returnsNothingForAFileThePullRequestDoesNotChange() {
+        assertEquals(Optional.empty(), pullRequestFileDiffService.getFileDiff(pullRequest, "README.md", null, 10));
+    }
+
+    private FileDiffPage page(String path, String cursor, int maxLines) {
+        return pullRequestFileDiffService.getFileDiff(pullRequest, path, cursor, maxLines).orElseThrow();
+    }
+
+    private void changedFile(String path, String oldContent, String newContent) {
+        PullRequestFileStat stat = new PullRequestFileStat();
+        stat.setPath(path);
+        stat.setOldBlobHash(store(oldContent));
+        stat.setNewBlobHash(store(newContent));
+        when(pullRequestDiffStatsService.getFileStat(pullRequest, path)).thenReturn(Optional.of(stat));
+    }
+
+    private String store(String content) {
+        if (content == null) {
+            return null;
+        }
+        String hash = BlobStore.hashOf(content);
+        contentByHash.put(hash, content);
+        return hash;
+    }
+
+    private static void assertHeader(FileDiff.Hunk hunk, int oldStart, int oldLines, int newStart, int newLines) {
+        assertEquals(List.of(oldStart, oldLines, newStart, newLines),
+                List.of(hunk.getOldStart(), hunk.getOldLines(), hunk.getNewStart(), hunk.getNewLines()));
+    }
+
+    private static List<Integer> hunkSizes(FileDiffPage page) {
+        List<Integer> sizes = new ArrayList<>();
+        for (FileDiff.Hunk hunk : page.getHunks()) {
+            sizes.add(hunk.getLines().size());
+        }
+        return sizes;
+    }
+
+    /**
+     * Lines "line 1" to "line count", with the given line numbers replaced by "changed n"
+     */
+    private static String lines(int count, int... changed) {
+        StringBuilder content = new StringBuilder();
+        for (int i = 1; i <= count; i++) {
+            boolean isChanged = false;
+            for (int line : changed) {
+                isChanged |= line == i;
+            }
+            content.append(isChanged ? "changed " : "line ").append(i).append('\n');
+        }
+        return content.toString();
+    }
+}
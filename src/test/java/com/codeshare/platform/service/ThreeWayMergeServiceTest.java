@@ -0,0 +1,139 @@
+package com.codeshare.platform.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.codeshare.platform.exception.MergeConflictException;
+import com.codeshare.platform.model.TreeNode;
+import com.codeshare.platform.repository.TreeNodeRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class ThreeWayMergeServiceTest {
+
+    // Stored tree nodes and blobs, standing in for their tables
+    private final Map<String, String> nodes = new HashMap<>();
+    private final Map<String, String> blobs = new HashMap<>();
+    private TreeManifestService treeManifestService;
+    private ThreeWayMergeService threeWayMergeService;
+
+    @BeforeEach
+    void setUp() {
+        TreeNodeRepository treeNodeRepository = mock(TreeNodeRepository.class);
+        when(treeNodeRepository.findExistingHashes(any())).thenAnswer(invocation -> {
+            List<String> existing = new ArrayList<>();
+            for (String hash : invocation.<Collection<String>>getArgument(0)) {
+                if (nodes.containsKey(hash)) {
+                    existing.add(hash);
+                }
+            }
+            return existing;
+        });
+        when(treeNodeRepository.insertIfAbsent(any(), any(), any())).thenAnswer(invocation ->
+                nodes.putIfAbsent(invocation.getArgument(0), invocation.getArgument(1)) == null ? 1 : 0);
+        when(treeNodeRepository.findById(any())).thenAnswer(invocation -> {
+            String hash = invocation.getArgument(0);
+            if (!nodes.containsKey(hash)) {
+                return Optional.empty();
+            }
+            TreeNode node = new TreeNode();
+            node.setHash(hash);
+            node.setEntries(nodes.get(hash));
+            return Optional.of(node);
+        });
+
+        BlobStore blobStore = mock(BlobStore.class);
+        when(blobStore.getAll(any())).thenAnswer(invocation -> {
+            Map<String, String> found = new HashMap<>();
+            for (String hash : invocation.<Collection<String>>getArgument(0)) {
+                if (blobs.containsKey(hash)) {
+                    found.put(hash, blobs.get(hash));
+                }
+            }
+            return found;
+        });
+
+        treeManifestService = new TreeManifestService(treeNodeRepository, new ObjectMapper(), 1000);
+        threeWayMergeService = new ThreeWayMergeService(treeManifestService, blobStore);
+    }
+
+    @Test
+    void takesTheSourceVersionsWhenIndependentlyCreatedBranchesShareAPath() {
+        String ours = tree(Map.of("README.md", "target readme\n", "src/Main.java", "class Main {}\n"));
+        String theirs = tree(Map.of("README.md", "source readme\n", "src/Feature.java", "class Feature {}\n"));
+
+        // Against the empty tree both sides added README.md, which cannot be merged
+        assertThrows(MergeConflictException.class, () -> threeWayMergeService.merge(null, ours, theirs));
+
+        Map<String, String> changes = threeWayMergeService.mergeUnrelated(ours, theirs);
+
+        assertEquals(Map.of("README.md", "source readme\n", "src/Feature.java", "class Feature {}\n"), changes);
+    }
+
+    @Test
+    void leavesPathsWithTheSameContentOnBothUnrelatedBranchesAlone() {
+        String ours = tree(Map.of("README.md", "same\n", "a.txt", "a\n"));
+        String theirs = tree(Map.of("README.md", "same\n"));
+
+        assertEquals(Map.of(), threeWayMergeService.mergeUnrelated(ours, theirs));
+    }
+
+    @Test
+    void mergesEditsOfDifferentLinesAgainstTheMergeBase() {
+        String base = tree(Map.of("file.txt", "1\n2\n3\n4\n5\n6\n7\n8\n"));
+        String ours = tree(Map.of("file.txt", "one\n2\n3\n4\n5\n6\n7\n8\n"));
+        String theirs = tree(Map.of("file.txt", "1\n2\n3\n4\n5\n6\n7\neight\n", "new.txt", "new\n"));
+
+        Map<String, String> changes = threeWayMergeService.merge(base, ours, theirs);
+
+        assertEquals(Map.of("file.txt", "one\n2\n3\n4\n5\n6\n7\neight\n", "new.txt", "new\n"), changes);
+    }
+
+    @Test
+    void reportsEditsOfTheSameLinesAsConflicts() {
+        String base = tree(Map.of("file.txt", "1\n2\n3\n"));
+        String ours = tree(Map.of("file.txt", "1\nours\n3\n"));
+        String theirs = tree(Map.of("file.txt", "1\ntheirs\n3\n"));
+
+        MergeConflictException conflict = assertThrows(MergeConflictException.class,
+                () -> threeWayMergeService.merge(base, ours, theirs));
+
+        assertEquals("file.txt", conflict.getConflicts().get(0).getPath());
+    }
+
+    @Test
+    void failsInsteadOfDeletingAPathWhoseBlobIsMissing() {
+        String ours = tree(Map.of("a.txt", "a\n"));
+        String theirs = tree(Map.of("a.txt", "a\n", "b.txt", "b\n"));
+        blobs.remove(BlobStore.hashOf("b\n"));
+
+        assertThrows(IllegalStateException.class, () -> threeWayMergeService.merge(ours, ours, theirs));
+        assertThrows(IllegalStateException.class, () -> threeWayMergeService.mergeUnrelated(ours, theirs));
+    }
+
+    /**
+     * Store the files as blobs and a tree
+     * @return root tree hash
+     */
+    private String tree(Map<String, String> files) {
+        Map<String, String> snapshotRefs = new HashMap<>();
+        files.forEach((path, content) -> {
+            String hash = BlobStore.hashOf(content);
+            blobs.put(hash, content);
+            snapshotRefs.put(path, hash);
+        });
+        return treeManifestService.writeTree(snapshotRefs);
+    }
+}
@@ -0,0 +1,104 @@
+package com.codeshare.platform.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class DeltaCodecTest {
+
+    @Test
+    void roundTripsIdenticalContentAsASingleCopy() {
+        byte[] base = text(200);
+
+        byte[] delta = DeltaCodec.encode(base, base);
+
+        assertArrayEquals(base, DeltaCodec.apply(base, delta));
+        assertTrue(delta.length < 16, "delta of identical content was " + delta.length + " bytes");
+    }
+
+    @Test
+    void roundTripsScatteredEditsWithASmallDelta() {
+        byte[] base = text(500);
+        String edited = new String(base, StandardCharsets.UTF_8)
+                .replace("line 10 ", "LINE TEN ")
+                .replace("line 250 ", "")
+                .replace("line 499 ", "line 499 and one more ");
+        byte[] target = edited.getBytes(StandardCharsets.UTF_8);
+
+        byte[] delta = DeltaCodec.encode(base, target);
+
+        assertArrayEquals(target, DeltaCodec.apply(base, delta));
+        assertTrue(delta.length < target.length / 10, "delta was " + delta.length + " of " + target.length + " bytes");
+    }
+
+    @Test
+    void roundTripsEmptyBaseAndEmptyTarget() {
+        byte[] content = text(20);
+        byte[] empty = new byte[0];
+
+        assertArrayEquals(content, DeltaCodec.apply(empty, DeltaCodec.encode(empty, content)));
+        assertArrayEquals(empty, DeltaCodec.apply(content, DeltaCodec.encode(content, empty)));
+        assertArrayEquals(empty, DeltaCodec.apply(empty, DeltaCodec.encode(empty, empty)));
+    }
+
+    @Test
+    void roundTripsContentShorterThanABlock() {
+        byte[] base = "abc".getBytes(StandardCharsets.UTF_8);
+        byte[] target = "abcd".getBytes(StandardCharsets.UTF_8);
+
+        assertArrayEquals(target, DeltaCodec.apply(base, DeltaCodec.encode(base, target)));
+    }
+
+    @Test
+    void roundTripsRandomEdits() {
+        Random random = new Random(42);
+        for (int round = 0; round < 50; round++) {
+            byte[] base = new byte[random.nextInt(4000)];
+            random.nextBytes(base);
+            byte[] target = mutate(base, random);
+
+            assertArrayEquals(target, DeltaCodec.apply(base, DeltaCodec.encode(base, target)));
+        }
+    }
+
+    @Test
+    void rejectsADeltaForAnotherBase() {
+        byte[] base = text(50);
+        byte[] delta = DeltaCodec.encode(base, text(60));
+
+        assertThrows(IllegalArgumentException.class, () -> DeltaCodec.apply(text(40), delta));
+    }
+
+    private static byte[] text(int lines) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            text.append("line ").append(i).append(" of some file content\n");
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Copy of the input with a few random ranges replaced, inserted or removed
+     */
+    private static byte[] mutate(byte[] input, Random random) {
+        byte[] result = input.clone();
+        for (int edit = random.nextInt(5); edit > 0; edit--) {
+            int at = result.length == 0 ? 0 : random.nextInt(result.length);
+            int removed = Math.min(result.length - at, random.nextInt(64));
+            byte[] inserted = new byte[random.nextInt(64)];
+            random.nextBytes(inserted);
+
+            byte[] next = new byte[result.length - removed + inserted.length];
+            System.arraycopy(result, 0, next, 0, at);
+            System.arraycopy(inserted, 0, next, at, inserted.length);
+            System.arraycopy(result, at + removed, next, at + inserted.length, result.length - at - removed);
+            result = next;
+        }
+        return result;
+    }
+}